@@ -0,0 +1,143 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nfc.eclipse.plugin.NdefModelOperator;
+import org.nfc.eclipse.plugin.NdefRecordFactory;
+import org.nfc.eclipse.plugin.RecordGenerator;
+import org.nfc.eclipse.plugin.model.NdefRecordModelFactory;
+import org.nfc.eclipse.plugin.model.NdefRecordModelParent;
+import org.nfctools.ndef.NdefContext;
+import org.nfctools.ndef.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 
+ * Benchmark for parsing NDEF messages, representing them in the editor model and encoding the model again.
+ * 
+ * @author thomas
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NdefBenchmark {
+
+	/**
+	 * 
+	 * Create a message of the test records, repeated as necessary.
+	 * 
+	 * @param count number of records
+	 * @return the records
+	 */
+	
+	public static List<Record> getRecords(int count) {
+		List<Record> records = new ArrayList<Record>(count);
+		for(int i = 0; i < count; i++) {
+			records.add(RecordGenerator.records[i % RecordGenerator.records.length]);
+		}
+		return records;
+	}
+	
+	@Param({"1", "10", "100", "1000"})
+	private int records;
+	
+	private byte[] ndef;
+	private Record[] decoded;
+	
+	private NdefModelOperator operator;
+	
+	@Setup
+	public void setup() throws Exception {
+		ndef = NdefContext.getNdefMessageEncoder().encode(getRecords(records));
+		
+		List<Record> list = NdefContext.getNdefMessageDecoder().decodeToRecords(ndef);
+		decoded = list.toArray(new Record[list.size()]);
+		
+		operator = new NdefModelOperator(new NdefRecordFactory());
+		operator.load(new ByteArrayInputStream(ndef));
+	}
+	
+	@Benchmark
+	public List<Record> decode() {
+		return NdefContext.getNdefMessageDecoder().decodeToRecords(ndef);
+	}
+
+	@Benchmark
+	public NdefRecordModelParent represent() {
+		return NdefRecordModelFactory.represent(decoded);
+	}
+
+	/**
+	 * 
+	 * Encode a model which has not been changed since the last encode, i.e. when refreshing the views.
+	 * 
+	 */
+	
+	@Benchmark
+	public byte[] toNdefMessage() {
+		return operator.toNdefMessage();
+	}
+
+	/**
+	 * 
+	 * Open a file in the editor: decode, represent and encode.
+	 * 
+	 */
+	
+	@Benchmark
+	public NdefModelOperator load() throws Exception {
+		NdefModelOperator operator = new NdefModelOperator(new NdefRecordFactory());
+		operator.load(new ByteArrayInputStream(ndef));
+		return operator;
+	}
+
+	@Benchmark
+	public android.nfc16.NdefMessage androidNdefMessage() throws Exception {
+		return new android.nfc16.NdefMessage(ndef);
+	}
+}
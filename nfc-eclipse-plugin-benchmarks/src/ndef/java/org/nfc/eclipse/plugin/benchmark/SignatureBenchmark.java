@@ -0,0 +1,127 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.benchmark;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.x509.X509V3CertificateGenerator;
+import org.nfc.eclipse.ndef.signature.SignatureVerifier;
+import org.nfctools.ndef.NdefContext;
+import org.nfctools.ndef.wkt.records.SignatureRecord.CertificateFormat;
+import org.nfctools.ndef.wkt.records.SignatureRecord.SignatureType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 
+ * Benchmark for verifying an RSA signature over NDEF messages, with a self-signed X.509 certificate.
+ * 
+ * @author thomas
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureBenchmark {
+
+	@Param({"1", "10", "100", "1000"})
+	private int records;
+	
+	private byte[] certificate;
+	private byte[] signature;
+	private byte[] covered;
+	
+	private SignatureVerifier signatureVerifier;
+	
+	@SuppressWarnings("deprecation")
+	@Setup
+	public void setup() throws Exception {
+		if (Security.getProvider("BC") == null) {
+			Security.addProvider(new BouncyCastleProvider());
+		}
+		
+		covered = NdefContext.getNdefMessageEncoder().encode(NdefBenchmark.getRecords(records));
+		
+		KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA", "BC");
+		keyPairGenerator.initialize(2048);
+		KeyPair keyPair = keyPairGenerator.generateKeyPair();
+		
+		X500Principal principal = new X500Principal("CN=NFC Eclipse Plugin Benchmark");
+		
+		X509V3CertificateGenerator generator = new X509V3CertificateGenerator();
+		generator.setSerialNumber(BigInteger.ONE);
+		generator.setIssuerDN(principal);
+		generator.setSubjectDN(principal);
+		generator.setNotBefore(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+		generator.setNotAfter(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)));
+		generator.setPublicKey(keyPair.getPublic());
+		generator.setSignatureAlgorithm("SHA1withRSA");
+		
+		X509Certificate x509Certificate = generator.generate(keyPair.getPrivate(), "BC");
+		certificate = x509Certificate.getEncoded();
+		
+		Signature signer = Signature.getInstance("SHA1withRSA", "BC");
+		signer.initSign(keyPair.getPrivate());
+		signer.update(covered);
+		signature = signer.sign();
+		
+		signatureVerifier = new SignatureVerifier();
+		
+		if(!Boolean.TRUE.equals(verify())) {
+			throw new IllegalStateException("Signature does not verify");
+		}
+	}
+	
+	@Benchmark
+	public Boolean verify() throws Exception {
+		return signatureVerifier.verify(CertificateFormat.X_509, certificate, SignatureType.RSASSA_PKCS1_v1_5_WITH_SHA_1, signature, covered);
+	}
+}
@@ -0,0 +1,168 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.ndef.signature;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.nfctools.ndef.wkt.records.SignatureRecord.CertificateFormat;
+import org.nfctools.ndef.wkt.records.SignatureRecord.SignatureType;
+
+/**
+ * 
+ * Cache of signature verification results, keyed by a digest of the certificate, signature and covered bytes, 
+ * so that each signature is only verified once as long as the signed records do not change.
+ * 
+ * @author thomas
+ *
+ */
+
+public class SignatureVerificationCache {
+
+	public enum Result {
+		VERIFIED, NOT_VERIFIED, UNSUPPORTED, FAILED;
+	}
+	
+	private static final int MAX_ENTRIES = 256;
+	
+	private static final Map<String, Result> results = new LinkedHashMap<String, Result>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/**
+	 * 
+	 * Get the key for a verification.
+	 * 
+	 * @return digest of all the inputs to the verification
+	 */
+	
+	public static String getKey(CertificateFormat certificateFormat, byte[] certificateBytes, SignatureType signatureType, byte[] signatureBytes, byte[] coveredBytes) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		
+		update(digest, certificateFormat != null ? certificateFormat.ordinal() : -1);
+		update(digest, certificateBytes);
+		update(digest, signatureType != null ? signatureType.ordinal() : -1);
+		update(digest, signatureBytes);
+		update(digest, coveredBytes);
+		
+		byte[] hash = digest.digest();
+		
+		StringBuilder builder = new StringBuilder(hash.length * 2);
+		for(byte b : hash) {
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+			builder.append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+
+	private static void update(MessageDigest digest, byte[] bytes) {
+		if(bytes == null) {
+			update(digest, -1);
+		} else {
+			// length prefix, so that the fields cannot be shifted into each other
+			update(digest, bytes.length);
+			
+			digest.update(bytes);
+		}
+	}
+
+	private static void update(MessageDigest digest, int value) {
+		digest.update((byte)(value >>> 24));
+		digest.update((byte)(value >>> 16));
+		digest.update((byte)(value >>> 8));
+		digest.update((byte)value);
+	}
+	
+	/**
+	 * 
+	 * Get a previous result.
+	 * 
+	 * @param key the key
+	 * @return the result, or null if not verified
+	 */
+	
+	public static Result get(String key) {
+		synchronized(results) {
+			return results.get(key);
+		}
+	}
+	
+	/**
+	 * 
+	 * Verify a signature and cache the result. This might be slow, so should not be called on the UI thread.
+	 * 
+	 * @param key the key for the inputs
+	 * @return the result
+	 */
+	
+	public static Result verify(String key, CertificateFormat certificateFormat, byte[] certificateBytes, SignatureType signatureType, byte[] signatureBytes, byte[] coveredBytes) {
+		Result result = get(key);
+		if(result != null) {
+			return result;
+		}
+		
+		try {
+			Boolean verify = new SignatureVerifier().verify(certificateFormat, certificateBytes, signatureType, signatureBytes, coveredBytes);
+			
+			if(verify == null) {
+				result = Result.UNSUPPORTED;
+			} else if(verify.booleanValue()) {
+				result = Result.VERIFIED;
+			} else {
+				result = Result.NOT_VERIFIED;
+			}
+		} catch(Exception e) {
+			result = Result.FAILED;
+		}
+		
+		synchronized(results) {
+			results.put(key, result);
+		}
+		
+		return result;
+	}
+	
+	public static void clear() {
+		synchronized(results) {
+			results.clear();
+		}
+	}
+}
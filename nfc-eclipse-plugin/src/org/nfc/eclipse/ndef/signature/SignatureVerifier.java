@@ -29,12 +29,16 @@ package org.nfc.eclipse.ndef.signature;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.NoSuchProviderException;
+import java.security.PublicKey;
 import java.security.Security;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.DSAParams;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.bouncycastle.asn1.ASN1InputStream;
 import org.bouncycastle.asn1.ASN1Primitive;
@@ -70,24 +74,99 @@ public class SignatureVerifier {
     public static final DERObjectIdentifier id_dsa = new DERObjectIdentifier("1.2.840.10040.4.1");
     public static final DERObjectIdentifier id_dsa_with_sha1 = new DERObjectIdentifier("1.2.840.10040.4.3");
 
-	public Boolean verify(CertificateFormat certificateFormat, byte[] certificateBytes, SignatureType signatureType, byte[] signatureBytes, byte[] coveredBytes) throws CertificateException, NoSuchProviderException {
-
+    static {
 		if (Security.getProvider("BC") == null) {
             Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
         }
+    }
+    
+    /**
+     * 
+     * Parsed certificate and the key parameters derived from it. 
+     *
+     */
+    
+    private static class CertificateEntry {
+    	
+    	private Certificate certificate;
+    	
+    	private RSAKeyParameters rsaKeyParameters;
+    	
+    	private BCDSAPublicKey dsaKey;
+    	private DSAPublicKeyParameters dsaKeyParameters;
+    }
+    
+    private static final int MAX_CERTIFICATES = 64;
+    
+    /** parsed certificates by encoded certificate, so that certificates shared by signatures are only parsed once */
+	private static final Map<ByteBuffer, CertificateEntry> certificates = new LinkedHashMap<ByteBuffer, CertificateEntry>(16, 0.75f, true) {
 
-		Certificate certificate = null;
-		if(certificateFormat == CertificateFormat.X_509) {
-			java.security.cert.CertificateFactory cf = java.security.cert.CertificateFactory.getInstance("X.509", "BC");
+		private static final long serialVersionUID = 1L;
 
-			certificate = cf.generateCertificate(new ByteArrayInputStream(certificateBytes));
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ByteBuffer, CertificateEntry> eldest) {
+			return size() > MAX_CERTIFICATES;
+		}
+	};
+	
+	/**
+	 * 
+	 * Get a parsed certificate, parsing it if not cached.
+	 * 
+	 * @return the parsed certificate, or null if the certificate format is not supported
+	 */
+	
+	private static CertificateEntry getCertificateEntry(CertificateFormat certificateFormat, byte[] certificateBytes) throws CertificateException, NoSuchProviderException {
+		if(certificateFormat != CertificateFormat.X_509) {
+			return null;
+		}
+		
+		ByteBuffer key = ByteBuffer.wrap(certificateBytes);
+		
+		synchronized(certificates) {
+			CertificateEntry entry = certificates.get(key);
+			if(entry != null) {
+				return entry;
+			}
 		}
+		
+		java.security.cert.CertificateFactory cf = java.security.cert.CertificateFactory.getInstance("X.509", "BC");
 
-		if(signatureType == SignatureType.RSASSA_PKCS1_v1_5_WITH_SHA_1) {
+		CertificateEntry entry = new CertificateEntry();
+		entry.certificate = cf.generateCertificate(new ByteArrayInputStream(certificateBytes));
+		
+		PublicKey publicKey = entry.certificate.getPublicKey();
+		if(publicKey instanceof BCRSAPublicKey) {
+			BCRSAPublicKey rsaKey = (BCRSAPublicKey)publicKey;
+			
+			entry.rsaKeyParameters = new RSAKeyParameters(false, rsaKey.getModulus(), rsaKey.getPublicExponent());
+		} else if(publicKey instanceof BCDSAPublicKey) {
+			entry.dsaKey = (BCDSAPublicKey)publicKey;
+			
+            // DSA Domain parameters
+			DSAParams params = entry.dsaKey.getParams();
+			if(params != null) {
+	            DSAParameters parameters = new DSAParameters(params.getP(), params.getQ(), params.getG());
+	            
+	            entry.dsaKeyParameters = new DSAPublicKeyParameters(entry.dsaKey.getY(), parameters);
+			}
+		}
+		
+		synchronized(certificates) {
+			// copy the key, the caller might modify its array
+			certificates.put(ByteBuffer.wrap(certificateBytes.clone()), entry);
+		}
+		
+		return entry;
+	}
+	
+	public Boolean verify(CertificateFormat certificateFormat, byte[] certificateBytes, SignatureType signatureType, byte[] signatureBytes, byte[] coveredBytes) throws CertificateException, NoSuchProviderException {
 
-			BCRSAPublicKey key = (BCRSAPublicKey) certificate.getPublicKey();
+		CertificateEntry certificate = getCertificateEntry(certificateFormat, certificateBytes);
 
-	        RSAKeyParameters pubParameters = new RSAKeyParameters(false, key.getModulus(), key.getPublicExponent());
+		if(signatureType == SignatureType.RSASSA_PKCS1_v1_5_WITH_SHA_1) {
+
+	        RSAKeyParameters pubParameters = getRSAKeyParameters(certificate);
 
 	        SHA1Digest digest = new SHA1Digest();
 	        
@@ -97,9 +176,7 @@ public class SignatureVerifier {
 
 	        return rsaDigestSigner.verifySignature(signatureBytes);
 		} else if(signatureType == SignatureType.RSASSA_PSS_SHA_1) {
-			BCRSAPublicKey key = (BCRSAPublicKey) certificate.getPublicKey();
-
-	        RSAKeyParameters pubParameters = new RSAKeyParameters(false, key.getModulus(), key.getPublicExponent());
+	        RSAKeyParameters pubParameters = getRSAKeyParameters(certificate);
 
             AsymmetricBlockCipher rsaEngine = new RSABlindedEngine();
             rsaEngine.init(false, pubParameters);
@@ -143,18 +220,16 @@ public class SignatureVerifier {
 				BigInteger r = DERInteger.getInstance(asn1Sequence.getObjectAt(0)).getValue();
 				BigInteger s = DERInteger.getInstance(asn1Sequence.getObjectAt(1)).getValue();
 			 
-				BCDSAPublicKey key = (BCDSAPublicKey) certificate.getPublicKey();
+				if(certificate == null || certificate.dsaKey == null) {
+					throw new CertificateException("Expected certificate with DSA key");
+				}
 				
-	            // DSA Domain parameters
-	            DSAParams params = key.getParams();
-	            if(params == null) {
+	            if(certificate.dsaKeyParameters == null) {
 	                return Boolean.FALSE;
 	            }
 	            
-	            DSAParameters parameters = new DSAParameters(params.getP(), params.getQ(), params.getG());
-	            
 	            DSASigner signer = new DSASigner();
-	            signer.init(false, new DSAPublicKeyParameters(key.getY(), parameters));
+	            signer.init(false, certificate.dsaKeyParameters);
 	
 	            SHA1Digest digest = new SHA1Digest();
 	            digest.update(coveredBytes, 0, coveredBytes.length);
@@ -172,6 +247,13 @@ public class SignatureVerifier {
 
 	}
 	
+	private static RSAKeyParameters getRSAKeyParameters(CertificateEntry certificate) throws CertificateException {
+		if(certificate == null || certificate.rsaKeyParameters == null) {
+			throw new CertificateException("Expected certificate with RSA key");
+		}
+		return certificate.rsaKeyParameters;
+	}
+	
 	public boolean verifyRSASSA_PKCS1_v1_5_WITH_SHA_1(X509Certificate certificate, byte[] signature, byte[] covered) {
         BCRSAPublicKey key = (BCRSAPublicKey) certificate.getPublicKey();
 
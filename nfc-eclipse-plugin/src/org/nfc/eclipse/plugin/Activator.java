@@ -29,6 +29,7 @@ package org.nfc.eclipse.plugin;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
+import org.nfc.eclipse.plugin.util.Log;
 import org.osgi.framework.BundleContext;
 
 /**
@@ -56,6 +57,12 @@ public class Activator extends AbstractUIPlugin {
 		super.start(context);
 		plugin = this;
 		
+		Log.setHandler(new Log.Handler() {
+			public void log(int severity, String message, Throwable e) {
+				Activator.log(severity, message, e);
+			}
+		});
+		
 		info("start");
 	}
 
@@ -66,6 +73,8 @@ public class Activator extends AbstractUIPlugin {
 	public void stop(BundleContext context) throws Exception {
 		info("stop");
 
+		Log.setHandler(null);
+		
 		plugin = null;
 		super.stop(context);
 	}
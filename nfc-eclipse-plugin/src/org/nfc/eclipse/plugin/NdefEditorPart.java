@@ -26,7 +26,10 @@
 
 package org.nfc.eclipse.plugin;
 
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.action.IContributionItem;
@@ -39,6 +42,7 @@ import org.eclipse.jface.viewers.ColumnViewerEditorActivationEvent;
 import org.eclipse.jface.viewers.ColumnViewerEditorActivationStrategy;
 import org.eclipse.jface.viewers.ColumnViewerToolTipSupport;
 import org.eclipse.jface.viewers.FocusCellOwnerDrawHighlighter;
+import org.eclipse.jface.viewers.LabelProviderChangedEvent;
 import org.eclipse.jface.viewers.TreeSelection;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.TreeViewerColumn;
@@ -73,6 +77,7 @@ import org.eclipse.ui.actions.ActionFactory;
 import org.eclipse.ui.part.EditorPart;
 import org.nfc.eclipse.plugin.model.NdefRecordModelChangeListener;
 import org.nfc.eclipse.plugin.model.NdefRecordModelContentProvider;
+import org.nfc.eclipse.plugin.model.NdefRecordModelLazyContentProvider;
 import org.nfc.eclipse.plugin.model.NdefRecordModelHintColumnProvider;
 import org.nfc.eclipse.plugin.model.NdefRecordModelMenuListener;
 import org.nfc.eclipse.plugin.model.NdefRecordModelNode;
@@ -83,14 +88,17 @@ import org.nfc.eclipse.plugin.model.NdefRecordModelRecord;
 import org.nfc.eclipse.plugin.model.NdefRecordModelSizeColumnLabelProvider;
 import org.nfc.eclipse.plugin.model.NdefRecordModelValueColumnLabelProvider;
 import org.nfc.eclipse.plugin.model.editing.NdefRecordModelEditingSupport;
+import org.nfc.eclipse.plugin.operation.NdefModelChange;
 import org.nfc.eclipse.plugin.operation.NdefModelOperation;
 import org.nfc.eclipse.plugin.terminal.NdefTerminalListener;
 import org.nfc.eclipse.plugin.terminal.NdefTerminalWrapper;
-import org.nfctools.ndef.NdefContext;
 import org.nfctools.ndef.NdefException;
-import org.nfctools.ndef.NdefMessageEncoder;
 import org.nfctools.ndef.NdefOperations;
 import org.nfctools.ndef.Record;
+import org.nfctools.ndef.wkt.records.SignatureRecord;
+
+import com.google.zxing.qrcode.binary.QRCodeCapacity;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 
 
 public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeListener {
@@ -101,6 +109,30 @@ public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeL
 	protected SashForm form;
 	protected NdefMultiPageEditor ndefMultiPageEditor;
 	
+	/** last hint text of each node, so that the hint column is only packed when a hint has changed */
+	private Map<Object, String> hintTexts = new WeakHashMap<Object, String>();
+	private boolean hintTextChanged = false;
+	
+	/** whether the tree is virtual, for large messages */
+	private boolean lazy = false;
+	private Composite treeWrapper;
+	
+	/** latest auto-write, only accessed from the UI thread */
+	private NdefTerminalJob terminalJob;
+	
+	/** delay in milliseconds before refreshing the status line, so that requests can be coalesced */
+	private static final int STATUS_LINE_REFRESH_DELAY = 100;
+	
+	private boolean statusLineRefreshPending = false;
+	
+	private final Runnable statusLineRefresh = new Runnable() {
+		public void run() {
+			statusLineRefreshPending = false;
+			
+			updateStatusLine();
+		}
+	};
+	
 	public NdefEditorPart(NdefModelOperator operator, NdefMultiPageEditor ndefMultiPageEditor) {
 		this.operator = operator;
 		this.ndefMultiPageEditor = ndefMultiPageEditor;
@@ -171,9 +203,23 @@ public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeL
 	}
 		
 	protected void modified(boolean terminal) {
-		treeViewer.refresh();
-
-		form.update();
+		hintTextChanged = false;
+		
+		NdefModelChange change = operator.getChange();
+		if(operator.isLazy() != lazy) {
+			// records replaced by a message of another size
+			recreateTreeViewer();
+			
+			hintTextChanged = true;
+		} else if(change != null) {
+			update(change);
+		} else {
+			treeViewer.refresh();
+	
+			form.update();
+			
+			hintTextChanged = true;
+		}
 		
 		setDirty(operator.isDirty());
 		
@@ -184,15 +230,101 @@ public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeL
 		refreshStatusLine();
 		
 		// also fill the last column (i.e. pack or fill) if any hint has been modified
-		packAndFillLastColumn();
+		if(hintTextChanged) {
+			packAndFillLastColumn();
+		}
 		
 		if(terminal) {
 			handleTerminal();
 		}
 	}
 
+	private void recreateTreeViewer() {
+		treeViewer.getTree().dispose();
+		
+		hintTexts.clear();
+		
+		createTreeViewer();
+		
+		treeWrapper.layout();
+	}
+	
+	/**
+	 * 
+	 * Update the tree for the nodes affected by an operation, instead of refreshing the whole tree.
+	 * 
+	 * @param change the affected nodes
+	 */
+	
+	private void update(NdefModelChange change) {
+		for(NdefRecordModelNode node : change.getRemoved()) {
+			if(hasHintText(node)) {
+				hintTextChanged = true;
+			}
+			if(!lazy) {
+				treeViewer.remove(node);
+			}
+		}
+		
+		for(NdefRecordModelNode node : change.getAdded()) {
+			if(!lazy) {
+				treeViewer.insert(node.getParent(), node, node.getParentIndex());
+			}
+		}
+		
+		if(lazy) {
+			// a virtual tree asks for the child count and shown children again
+			for(NdefRecordModelParent parent : getParents(change)) {
+				treeViewer.refresh(parent);
+			}
+		}
+		
+		for(NdefRecordModelNode node : change.getRefreshed()) {
+			treeViewer.refresh(node);
+		}
+		
+		// i.e. size of the parent records
+		for(NdefRecordModelNode node : change.getUpdated()) {
+			treeViewer.update(node, null);
+		}
+		
+		// signature hints depend on the records before the signature
+		for(NdefRecordModelNode node : operator.getModel().getChildren()) {
+			if(node.getRecord() instanceof SignatureRecord) {
+				treeViewer.refresh(node);
+			}
+		}
+	}
+	
+	private Set<NdefRecordModelParent> getParents(NdefModelChange change) {
+		Set<NdefRecordModelParent> parents = new LinkedHashSet<NdefRecordModelParent>();
+		for(NdefRecordModelNode node : change.getRemoved()) {
+			// removed nodes keep their parent
+			parents.add(node.getParent());
+		}
+		for(NdefRecordModelNode node : change.getAdded()) {
+			parents.add(node.getParent());
+		}
+		return parents;
+	}
+	
+	private boolean hasHintText(NdefRecordModelNode node) {
+		if(hintTexts.get(node) != null) {
+			return true;
+		}
+		if(node instanceof NdefRecordModelParent) {
+			for(NdefRecordModelNode child : ((NdefRecordModelParent)node).getChildren()) {
+				if(hasHintText(child)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	private void handleTerminal() {
-		if(NdefTerminalWrapper.isAvailable()) {
+		// do not overwrite tags which are being provisioned
+		if(NdefTerminalWrapper.isAvailable() && NdefTerminalWrapper.getProvisioning() == null) {
 			
 			NdefTerminalListener ndefTerminalListener = NdefTerminalWrapper.getNdefTerminalWriteListener();
 			
@@ -202,23 +334,40 @@ public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeL
 					NdefOperations ndefOperations = NdefTerminalWrapper.getNdefOperations();
 					
 					if(ndefOperations != null) {
-						List<Record> records = operator.getRecords();
+						// encode here, so that the job does not share records with further edits
+						byte[] message;
+						try {
+							message = operator.toNdefMessage();
+						} catch(Exception e) {
+							setStatus("Auto-write not possible.");
+							
+							return;
+						}
 						
-		        		// add write option IF message can in fact be written
-						NdefMessageEncoder ndefMessageEncoder = NdefContext.getNdefMessageEncoder();
-		        		
-		        		try {
-		        			ndefMessageEncoder.encode(records);
-
-							if(ndefOperations.isFormatted()) {
-								ndefOperations.writeNdefMessage(records.toArray(new Record[records.size()]));
-							} else {
-								ndefOperations.format(records.toArray(new Record[records.size()]));
+						// only the latest content needs to be written
+						if(terminalJob != null) {
+							terminalJob.cancel();
+						}
+						
+						terminalJob = new NdefTerminalJob(NdefTerminalJob.Operation.WRITE, ndefOperations, message, getSite().getShell().getDisplay(), new NdefTerminalJob.Listener() {
+							@Override
+							public void completed(NdefTerminalJob job) {
+								if(terminalJob == job) {
+									terminalJob = null;
+								}
+								
+								if(treeViewer.getTree().isDisposed()) {
+									return;
+								}
+								
+								if(job.getException() == null) {
+									setStatus("Auto-write successful (" + job.getDuration() + " ms).");
+								} else {
+									setStatus("Auto-write not possible.");
+								}
 							}
-		        			setStatus("Auto-write successful.");
-		        		} catch(Exception e) {
-		        			setStatus("Auto-write not possible.");
-		        		}
+						});
+						terminalJob.schedule();
 					}
 				}
 			}			
@@ -231,73 +380,116 @@ public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeL
 		//hexEditor.getEditorSite().getActionBars().getGlobalActionHandler(ActionFactory.PASTE.getId()).setEnabled(canPaste());
 	}
 	
+	/**
+	 * 
+	 * Request a refresh of the status line. Requests are coalesced into a single refresh on the UI thread 
+	 * shortly after, so that bursts of edits or terminal events do not update the status line for each event.
+	 * 
+	 */
+	
 	public void refreshStatusLine() {
 		final Display display = Display.getDefault();
+		
+		if(display.getThread() != Thread.currentThread()) {
+			display.asyncExec(new Runnable() {
+				public void run() {
+					refreshStatusLine();
+				}
+			});
+			
+			return;
+		}
+		
+		if(!statusLineRefreshPending) {
+			statusLineRefreshPending = true;
+			
+			display.timerExec(STATUS_LINE_REFRESH_DELAY, statusLineRefresh);
+		}
+	}
+	
+	private void updateStatusLine() {
+		if(treeViewer == null || treeViewer.getTree().isDisposed()) {
+			return;
+		}
+		
+		IActionBars actionBars = getEditorSite().getActionBars(); 
 
-		new Thread() {
-
-			public void run() {
-
-				display.syncExec(new Runnable() {
-					public void run() {
+		if( actionBars == null ) {
+			return ;
+		}
 
-						IActionBars actionBars = getEditorSite().getActionBars(); 
+		IStatusLineManager statusLineManager = actionBars.getStatusLineManager();
 
-						if( actionBars == null ) {
-							return ;
+		if( statusLineManager == null ) {
+			return ;
+		}
+		
+		IContributionItem[] items = statusLineManager.getItems();
+		
+		int length;
+		try {
+			length = operator.getNdefMessageSize();
+		} catch(NdefException e) {
+			length = -1;
+		}
+		
+		for(IContributionItem item : items) {
+			if(item.getId().equals(NdefMultiPageEditorContributor.class.getName()+".size")) {
+				
+				StatusLineContributionItem size = (StatusLineContributionItem)item;
+				
+				if(length != -1) {
+					size.setText(length + " bytes ");
+				} else {
+					size.setText("-");
+				}
+			} else if(item.getId().equals(NdefMultiPageEditorContributor.class.getName()+".qr")) {
+				StatusLineContributionItem qr = (StatusLineContributionItem)item;
+				
+				if(length != -1) {
+					int bytesLeft = QRCodeCapacity.getBytesLeft(length, ErrorCorrectionLevel.L);
+					if(bytesLeft >= 0) {
+						qr.setText("QR " + bytesLeft + " bytes left");
+					} else {
+						int symbols = QRCodeCapacity.getStructuredAppendSymbols(length, ErrorCorrectionLevel.L);
+						if(symbols != -1) {
+							qr.setText("QR " + symbols + " codes");
+						} else {
+							qr.setText("QR stream");
 						}
+					}
+				} else {
+					qr.setText("-");
+				}
+			} else if(item.getId().equals(NdefMultiPageEditorContributor.class.getName()+".terminal")) {
+				StatusLineContributionItem size = (StatusLineContributionItem)item;
+				
+				if(NdefTerminalWrapper.isAvailable()) {
+					
+					if(NdefTerminalWrapper.hasSeenReader()) {
 
-						IStatusLineManager statusLineManager = actionBars.getStatusLineManager();
-
-						if( statusLineManager == null ) {
-							return ;
-						}
-						
-						IContributionItem[] items = statusLineManager.getItems();
-						
-						for(IContributionItem item : items) {
-							if(item.getId().equals(NdefMultiPageEditorContributor.class.getName()+".size")) {
-								
-								StatusLineContributionItem size = (StatusLineContributionItem)item;
-								
-								try {
-									size.setText(operator.toNdefMessage().length + " bytes ");
-								} catch(NdefException e) {
-									size.setText("-");
-								}
-							} else if(item.getId().equals(NdefMultiPageEditorContributor.class.getName()+".terminal")) {
-								StatusLineContributionItem size = (StatusLineContributionItem)item;
-								
-								if(NdefTerminalWrapper.isAvailable()) {
-									
-									if(NdefTerminalWrapper.hasSeenReader()) {
-
-										if(NdefTerminalWrapper.isReaderEnabledPreference()) {
-											String terminalName = NdefTerminalWrapper.getTerminalName();
-											if(terminalName != null) {
-												size.setText(terminalName);
-											} else {
-												size.setText("Card reader disconnected");
-											}
-										} else {
-											size.setText("Card readers disabled");
-										}
-									} else {
-										size.setText("No card reader");
-									}
-								} else {
-									size.setText("No card reader");
-								}
+						if(NdefTerminalWrapper.isReaderEnabledPreference()) {
+							String terminalName = NdefTerminalWrapper.getTerminalName();
+							if(terminalName != null) {
+								size.setText(terminalName);
+							} else {
+								size.setText("Card reader disconnected");
 							}
-
+						} else {
+							size.setText("Card readers disabled");
 						}
-						
-						// set global message using
-						// statusLineManager.setMessage( ..);
+					} else {
+						size.setText("No card reader");
 					}
-				});
+				} else {
+					size.setText("No card reader");
+				}
 			}
-		}.start();	
+
+		}
+		
+		// set global message using
+		// statusLineManager.setMessage( ..);
 	}
 	
 	@Override
@@ -345,11 +537,31 @@ public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeL
 		form = new SashForm(composite, SWT.HORIZONTAL);
 		form.setLayout(new FillLayout());
 
-		Composite wrapper = new Composite(form,SWT.NONE);
-		wrapper.setLayout(new FillLayout());
+		treeWrapper = new Composite(form,SWT.NONE);
+		treeWrapper.setLayout(new FillLayout());
 
-		treeViewer = new TreeViewer(wrapper, SWT.BORDER
-				| SWT.FULL_SELECTION);
+		createTreeViewer();
+	}
+	
+	/**
+	 * 
+	 * Create the tree viewer, as a virtual tree if the model is lazy. The style of a tree cannot be changed,
+	 * so the tree viewer is created again if the model changes between eager and lazy.
+	 * 
+	 */
+	
+	private void createTreeViewer() {
+		lazy = operator.isLazy();
+		
+		if(lazy) {
+			// large message; only create the items which are shown
+			treeViewer = new TreeViewer(treeWrapper, SWT.BORDER
+					| SWT.FULL_SELECTION | SWT.VIRTUAL);
+			treeViewer.setUseHashlookup(true);
+		} else {
+			treeViewer = new TreeViewer(treeWrapper, SWT.BORDER
+					| SWT.FULL_SELECTION);
+		}
 		treeViewer.getTree().setLinesVisible(true);
 		treeViewer.getTree().setHeaderVisible(true);
 				
@@ -409,22 +621,53 @@ public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeL
 		column.getColumn().setText("Hint");
 		column.getColumn().setAlignment(SWT.LEFT);
 		
-		column.setLabelProvider(new NdefRecordModelHintColumnProvider());
+		column.setLabelProvider(new NdefRecordModelHintColumnProvider() {
+			
+			@Override
+			public String getText(Object element) {
+				String text = super.getText(element);
+				
+				String previous = hintTexts.put(element, text);
+				if(previous == null ? text != null : !previous.equals(text)) {
+					hintTextChanged = true;
+				}
+				
+				return text;
+			}
+			
+			@Override
+			protected void fireLabelProviderChanged(LabelProviderChangedEvent event) {
+				// i.e. a signature was verified; the viewer asks for the new hint texts right away
+				hintTextChanged = false;
+				
+				super.fireLabelProviderChanged(event);
+				
+				if(hintTextChanged) {
+					packAndFillLastColumn();
+				}
+			}
+		});
 		
 		column.getColumn().pack();
 				
-		treeViewer.setContentProvider(new NdefRecordModelContentProvider());
+		if(lazy) {
+			treeViewer.setContentProvider(new NdefRecordModelLazyContentProvider());
+		} else {
+			treeViewer.setContentProvider(new NdefRecordModelContentProvider());
+		}
 
 		treeViewer.setInput(operator.getModel());
 		
 		new NdefRecordModelMenuListener(treeViewer, this, ndefMultiPageEditor, operator.getModel());
 		
-		treeViewer.expandAll();
+		if(!lazy) {
+			treeViewer.expandAll();
+		}
 
 		// we want the last column to 'fill' with the layout
 		// trigger at key points:
 		// first show
-		composite.getDisplay().asyncExec(
+		treeWrapper.getDisplay().asyncExec(
 				new Runnable()
 				{
 					public void run()
@@ -669,7 +912,9 @@ public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeL
 
 		modified(true);
 		
-		treeViewer.expandAll();
+		if(!lazy) {
+			treeViewer.expandAll();
+		}
 	}
 
 	public void redo() {
@@ -677,7 +922,9 @@ public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeL
 		
 		modified(true);
 		
-		treeViewer.expandAll();
+		if(!lazy) {
+			treeViewer.expandAll();
+		}
 	}
 
 	@Override
@@ -686,7 +933,12 @@ public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeL
 	}
 
 	public void refresh() {
-		treeViewer.refresh();
+		if(operator.isLazy() != lazy) {
+			// records replaced while this page was not shown
+			recreateTreeViewer();
+		} else {
+			treeViewer.refresh();
+		}
 	}
 
 	public void setStatus(String string) {
@@ -710,6 +962,12 @@ public class NdefEditorPart extends EditorPart implements NdefRecordModelChangeL
 	public void dispose() {
 		super.dispose();
 		
+		if(statusLineRefreshPending) {
+			statusLineRefreshPending = false;
+			
+			Display.getDefault().timerExec(-1, statusLineRefresh);
+		}
+		
 		if(NdefTerminalWrapper.isAvailable()) {
 			
 			NdefTerminalListener ndefTerminalReadListener = NdefTerminalWrapper.getNdefTerminalReadListener();
@@ -31,21 +31,16 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
 
-import org.eclipse.core.runtime.IPath;
-import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.graphics.ImageData;
-import org.eclipse.swt.graphics.PaletteData;
-import org.eclipse.swt.graphics.Point;
-import org.eclipse.swt.graphics.RGB;
-import org.eclipse.swt.widgets.Display;
-import org.eclipse.swt.widgets.Label;
-import org.eclipse.ui.IEditorInput;
-import org.eclipse.ui.IPathEditorInput;
 import org.nfc.eclipse.plugin.model.NdefRecordModelChangeListener;
 import org.nfc.eclipse.plugin.model.NdefRecordModelFactory;
 import org.nfc.eclipse.plugin.model.NdefRecordModelNode;
@@ -57,13 +52,18 @@ import org.nfc.eclipse.plugin.model.NdefRecordModelRecord;
 import org.nfc.eclipse.plugin.operation.DefaultNdefRecordModelParentPropertyOperation;
 import org.nfc.eclipse.plugin.operation.NdefModelAddListItemOperation;
 import org.nfc.eclipse.plugin.operation.NdefModelAddNodeOperation;
+import org.nfc.eclipse.plugin.operation.NdefModelChange;
+import org.nfc.eclipse.plugin.operation.NdefModelMergeableOperation;
+import org.nfc.eclipse.plugin.operation.NdefModelMergedOperation;
 import org.nfc.eclipse.plugin.operation.NdefModelMoveRecordOperation;
 import org.nfc.eclipse.plugin.operation.NdefModelOperation;
+import org.nfc.eclipse.plugin.operation.NdefModelOperationSize;
+import org.nfc.eclipse.plugin.operation.NdefModelOperationStep;
 import org.nfc.eclipse.plugin.operation.NdefModelRemoveListItemOperation;
 import org.nfc.eclipse.plugin.operation.NdefModelRemoveNodeOperation;
 import org.nfc.eclipse.plugin.operation.NdefModelReplaceChildRecordsOperation;
+import org.nfc.eclipse.plugin.util.Log;
 import org.nfctools.ndef.NdefContext;
-import org.nfctools.ndef.NdefEncoderException;
 import org.nfctools.ndef.NdefException;
 import org.nfctools.ndef.NdefMessageDecoder;
 import org.nfctools.ndef.NdefMessageEncoder;
@@ -72,43 +72,33 @@ import org.nfctools.ndef.wkt.handover.records.HandoverCarrierRecord;
 import org.nfctools.ndef.wkt.records.GcActionRecord;
 import org.nfctools.ndef.wkt.records.GcTargetRecord;
 
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.binary.BinaryQRCodeWriter;
+import com.google.zxing.qrcode.binary.QRCodeCapacity;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 
 public class NdefModelOperator implements NdefRecordModelChangeListener {
 	
-	public static final int MAX_BINARY_QR_PAYLOAD = 2953;
-
-	// IEditorInput input = getEditorInput();
+	public static final int MAX_BINARY_QR_PAYLOAD = QRCodeCapacity.getMaxPayload(ErrorCorrectionLevel.L);
 	
-	public static File getProjectPath(IEditorInput input) {
-		// find project path
-		
-		IPath projectPath = null;
-		if (input instanceof IPathEditorInput) {
-			IPathEditorInput pathEditorInput = (IPathEditorInput) input;
-			IPath path = pathEditorInput.getPath();
-
-			for(int i = 0; i < path.segmentCount(); i++) {
-				if(path.segment(i).equals("runtime-EclipseApplication")) {
-					projectPath = path.uptoSegment(path.segmentCount() - i + 1);
-					
-					break;
-				}
-			}
-		}
-		if(projectPath != null) {
-			return projectPath.toFile();
-		}
-		return null;
-	}
+	/** payloads up to this size are split over a sequence of QR codes */
+	public static final int MAX_STRUCTURED_APPEND_QR_PAYLOAD = QRCodeCapacity.getMaxStructuredAppendPayload(ErrorCorrectionLevel.L);
 	
-	private BinaryQRCodeWriter writer = new BinaryQRCodeWriter();
+	/** NDEF record header flags for message begin and message end */
+	private static final int FLAG_MB = 0x80;
+	private static final int FLAG_ME = 0x40;
+
+	/** messages with at least this many records are represented lazily, creating the nodes of each record on first access */
+	public static final int LAZY_RECORD_COUNT = 500;
 
 	private NdefRecordModelFactory ndefRecordModelFactory = new NdefRecordModelFactory();
 
 	private NdefRecordModelParent model;
 	
+	/** whether the loaded message was large enough to be represented lazily */
+	private boolean lazy = false;
+	
+	/** nodes affected by the last operation */
+	private NdefModelChange change;
+	
 	private NdefRecordFactory ndefRecordFactory;
 	
 	/**
@@ -116,10 +106,23 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 	 */
 	private Stack<NdefModelOperation> undolist = new Stack<NdefModelOperation>();
 	private Stack<NdefModelOperation> redolist = new Stack<NdefModelOperation>();
-	/** Mark where we are on the current list of operations (undo list) so that we can determine if dirty even when doing undo and redo */
+	/** Mark where we are on the current list of operations (undo list) so that we can determine if dirty even when doing undo and redo; -1 if the saved state can no longer be reached */
 	private int undoListSizeSaveMark = 0;
 	private int maxUndoSteps = 100;
 	
+	/** estimated bytes retained by each operation on the undo and redo lists */
+	private Map<NdefModelOperation, Long> retainedSizes = new IdentityHashMap<NdefModelOperation, Long>();
+	private long undoSize = 0;
+	private long redoSize = 0;
+	/** maximum estimated bytes retained by the undo and redo lists, or zero for no limit */
+	private long maxUndoSize = 32 * 1024 * 1024;
+	
+	/** consecutive edits of the same property within this many milliseconds are merged into one undo step, or zero for no merging */
+	private long mergeWindow = 2000;
+	/** last step added by update, and when */
+	private NdefModelOperationStep updateStep;
+	private long updateTime;
+	
 	
 	public NdefRecordModelFactory getNdefRecordModelFactory() {
 		return ndefRecordModelFactory;
@@ -135,6 +138,8 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 
 	public void newModel() {
 		this.model = new NdefRecordModelParent();
+		this.change = null;
+		this.lazy = false;
 	}
 	
 	/**
@@ -168,6 +173,8 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 		byte[] inBytes = bout.toByteArray();
 		
 		this.model = loadModel(bout.toByteArray());
+		this.change = null;
+		updateLazy();
 		
 		try {
 			byte[] outBytes = toNdefMessage();
@@ -188,7 +195,7 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 			
 			Record[] records = list.toArray(new Record[list.size()]);
 			
-			return NdefRecordModelFactory.represent(records);
+			return NdefRecordModelFactory.represent(records, records.length >= LAZY_RECORD_COUNT);
 		} else {
 			return new NdefRecordModelParent();
 		}
@@ -217,21 +224,151 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 		}
 	}
 
+	/**
+	 * 
+	 * Get the size of the encoded NDEF message, from the cached encoding of each record.
+	 * 
+	 * @return the size in bytes
+	 */
+	
+	public int getNdefMessageSize() {
+		List<NdefRecordModelNode> children = model.getChildren();
+		if(children.isEmpty()) {
+			return toNdefMessage().length;
+		}
+		
+		NdefMessageEncoder ndefMessageEncoder = NdefContext.getNdefMessageEncoder();
+
+		int length = 0;
+		for(NdefRecordModelNode child : children) {
+			// the message begin and end flags do not change the size
+			length += ((NdefRecordModelRecord)child).encode(ndefMessageEncoder).length;
+		}
+		return length;
+	}
+
+	/**
+	 * 
+	 * Encode the model as an NDEF message. 
+	 * 
+	 * Each (root level) record is encoded as a single-record message and cached in its model node, 
+	 * so only records touched by an operation since the last call are encoded again. The message
+	 * is assembled by concatenating the cached records, adjusting the message begin and end flags.
+	 * 
+	 * @return the NDEF message
+	 */
+
 	public byte[] toNdefMessage() {
 		NdefMessageEncoder ndefMessageEncoder = NdefContext.getNdefMessageEncoder();
 
-		return ndefMessageEncoder.encode(getRecords());
+		List<NdefRecordModelNode> children = model.getChildren();
+		if(children.isEmpty()) {
+			return ndefMessageEncoder.encode(getRecords());
+		}
+		
+		byte[][] encoded = new byte[children.size()][];
+		
+		int length = 0;
+		for(int i = 0; i < encoded.length; i++) {
+			NdefRecordModelRecord ndefRecordModelRecord = (NdefRecordModelRecord)children.get(i);
+			
+			encoded[i] = ndefRecordModelRecord.encode(ndefMessageEncoder);
+			
+			length += encoded[i].length;
+		}
+		
+		byte[] message = new byte[length];
+		
+		int offset = 0;
+		for(int i = 0; i < encoded.length; i++) {
+			System.arraycopy(encoded[i], 0, message, offset, encoded[i].length);
+			
+			int header = message[offset] & ~(FLAG_MB | FLAG_ME);
+			if(i == 0) {
+				header |= FLAG_MB;
+			}
+			if(i == encoded.length - 1) {
+				header |= FLAG_ME;
+			}
+			message[offset] = (byte)header;
+			
+			offset += encoded[i].length;
+		}
+		
+		return message;
 	}
 
 	@Override
 	public void update(NdefRecordModelNode ndefRecordModelNode, NdefModelOperation operation) {
-		Activator.info("Update model");
+		Log.info("Update model");
 
-		NdefRecordModelRecord recordNode = ndefRecordModelNode.getRecordNode();
+		long time = System.currentTimeMillis();
+		
+		if(canMerge(operation, time)) {
+			// apply the edit, then replace the previous step by a single merged step
+			NdefModelOperationStep step = new NdefModelOperationStep(operation, ndefRecordModelNode);
+			
+			execute(step);
+			
+			NdefModelOperation previous = undolist.pop();
+			undoSize -= getRetainedSize(previous);
+			retainedSizes.remove(previous);
+			
+			NdefModelMergedOperation merged = NdefModelMergedOperation.merge((NdefModelMergeableOperation)updateStep.getOperation(), (NdefModelMergeableOperation)operation);
+			
+			updateStep = new NdefModelOperationStep(merged, updateStep.getNodes());
+			
+			long size = NdefModelOperationSize.getRetainedSize(updateStep);
+			retainedSizes.put(updateStep, size);
+			
+			undolist.push(updateStep);
+			undoSize += size;
+			
+			trim();
+		} else {
+			updateStep = (NdefModelOperationStep)addOperationStep(operation, ndefRecordModelNode);
+			
+			execute(updateStep);
+		}
 		
-		addOperationStep(recordNode, operation);
+		updateTime = time;
+	}
+	
+	/**
+	 * 
+	 * Check whether an edit directly follows the last edit, on the same property and within the merge window, 
+	 * and the step for the last edit is not marked as saved.
+	 * 
+	 * @param operation the edit
+	 * @param time the current time
+	 * @return true if the edit can be merged with the last edit
+	 */
+	
+	private boolean canMerge(NdefModelOperation operation, long time) {
+		if(mergeWindow <= 0 || updateStep == null || time - updateTime > mergeWindow) {
+			return false;
+		}
+		if(undolist.isEmpty() || undolist.peek() != updateStep || !redolist.isEmpty() || undolist.size() == undoListSizeSaveMark) {
+			return false;
+		}
+		NdefModelOperation previous = updateStep.getOperation();
 		
-		operation.execute();
+		return previous instanceof NdefModelMergeableOperation && operation instanceof NdefModelMergeableOperation && ((NdefModelMergeableOperation)previous).canMerge(operation);
+	}
+	
+	public long getMergeWindow() {
+		return mergeWindow;
+	}
+
+	/**
+	 * 
+	 * Set the time window for merging consecutive edits of the same property into one undo step.
+	 * 
+	 * @param mergeWindow time in milliseconds, or zero to keep each edit as a separate step
+	 */
+	
+	public void setMergeWindow(long mergeWindow) {
+		this.mergeWindow = mergeWindow;
 	}
 	
 	@Override
@@ -243,10 +380,7 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 		
 		NdefModelAddNodeOperation ndefModelAddRecordOperation = new NdefModelAddNodeOperation(parent, ndefRecordFactory.createRecord(type), index);
 		
-		addOperationStep(parent, ndefModelAddRecordOperation);
-		
-		ndefModelAddRecordOperation.execute();
-		
+		execute(addOperationStep(ndefModelAddRecordOperation, parent));
 	}
 	
 	@Override
@@ -258,111 +392,55 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 		
 		NdefModelAddListItemOperation ndefModelAddListItemOperation = new NdefModelAddListItemOperation((NdefRecordModelPropertyList)node, index, "");
 		
-		addOperationStep(node, ndefModelAddListItemOperation);
-		
-		ndefModelAddListItemOperation.execute();
+		execute(addOperationStep(ndefModelAddListItemOperation, node));
 	}
 
 
 	@Override
 	public void removeRecord(NdefRecordModelRecord node) {
-		Activator.info("Remove record at " + node.getParentIndex());
+		Log.info("Remove record at " + node.getParentIndex());
 		
 		NdefModelRemoveNodeOperation operation = new NdefModelRemoveNodeOperation(node.getParent(), node);
 		
-		addOperationStep(node, operation);
-		
-		operation.execute();
+		execute(addOperationStep(operation, node.getParent()));
 	}
 
 	public void removeListItem(NdefRecordModelPropertyListItem node) {
 		NdefModelRemoveListItemOperation ndefModelRemoveListItemOperation = new NdefModelRemoveListItemOperation((NdefRecordModelPropertyList)node.getParent(), (NdefRecordModelPropertyListItem) node);
 		
-		addOperationStep(node, ndefModelRemoveListItemOperation);
-		
-		ndefModelRemoveListItemOperation.execute();
+		execute(addOperationStep(ndefModelRemoveListItemOperation, node.getParent()));
 	}
 	
 	public void move(NdefRecordModelNode node, NdefRecordModelParent nextParent, int nextIndex) {
-		Activator.info("Move record at " + node.getParent().indexOf(node));
+		Log.info("Move record at " + node.getParent().indexOf(node));
 		
 		NdefModelMoveRecordOperation ndefModelRecordMoveOperation = new NdefModelMoveRecordOperation(node, nextParent, nextIndex);
 		
-		addOperationStep(node, ndefModelRecordMoveOperation);
-		
-		ndefModelRecordMoveOperation.execute();
+		execute(addOperationStep(ndefModelRecordMoveOperation, node.getParent(), nextParent));
 	}
 
 
 	public NdefRecordModelParent getModel() {
 		return model;
 	}
-	public boolean refreshBinaryQR(Label label) {
-		
-		// implementation note: Label seems to display an image OR an label, whatever is set last.
-		try {
-
-			byte[] ndef = toNdefMessage();
-
-			if(ndef.length > 0) {
-				// do not encode if too large. the encoding takes a lot of time to fail
-				if(ndef.length > MAX_BINARY_QR_PAYLOAD) {
-					label.setText("NDEF payload size of " + ndef.length + " exceeeds QR code capacity of " + NdefModelOperator.MAX_BINARY_QR_PAYLOAD + " by " + (ndef.length - NdefModelOperator.MAX_BINARY_QR_PAYLOAD) + " bytes.\nIf you wish to use larger payloads:\n - use a NFC reader terminal, or\n - transfer as file to phone memory and use 'Load file' option.");
-					
-					Activator.info("NDEF size is too large, " + ndef.length);
 
-				} else {
-					Point size = label.getSize();
-
-					int parent = Math.min(size.x, size.y);
-
-					writer.setAligment(0, 0);
-
-					//get a byte matrix for the data
-					BitMatrix matrix = writer.encode(ndef, com.google.zxing.BarcodeFormat.QR_CODE, parent, parent);
-
-					//generate an image from the byte matrix
-					int width = matrix.getWidth(); 
-					int height = matrix.getHeight(); 
-
-					//create buffered image to draw to
-					ImageData imageData = new ImageData(width, height, 1, new PaletteData(new RGB[]{new RGB(0xFF, 0xFF, 0xFF), new RGB(0x00, 0x00, 0x00)}));
-					//iterate through the matrix and draw the pixels to the image
-					for (int y = 0; y < height; y++) { 
-						for (int x = 0; x < width; x++) { 
-							int grayValue = matrix.get(x, y) ? 0 : 0xff; 
-							imageData.setPixel(x, y, (grayValue != 0 ? 0 : 0xFFFFFF));
-						}
-					}
-
-					label.setImage(new Image(getDisplay(), imageData));
-					Activator.info("NDEF size is " + ndef.length + ", set image size " + parent + "x" + parent);
-				}
-				
-				return true;
-			} else {
-				Activator.info("NDEF size is zero");
-				
-				label.setImage(null);
-			}
-		} catch(NdefEncoderException e) {
-			Activator.error("Cannot create: " + e.getMessage());
-			label.setImage(null);
-		} catch (Exception e) {
-			Activator.error("Cannot create ", e);
-			label.setImage(null);
-		}
-		return false;
+	/**
+	 * 
+	 * Whether the loaded message is large, so that its record nodes are created on demand. 
+	 * Viewers should then only request the nodes which are shown, i.e. using a virtual tree.
+	 * The value is reevaluated when the records are replaced, undone or redone, so viewers should check it after doing so.
+	 * 
+	 * @return true if the model is lazy
+	 */
+	
+	public boolean isLazy() {
+		return lazy;
 	}
-
-	public static Display getDisplay() {
-	      Display display = Display.getCurrent();
-	      //may be null if outside the UI thread
-	      if (display == null)
-	         display = Display.getDefault();
-	      return display;		
-	   }
-
+	
+	private void updateLazy() {
+		this.lazy = model.getSize() >= LAZY_RECORD_COUNT;
+	}
+	
 	public void setRecord(NdefRecordModelParentProperty ndefRecordModelParentProperty, Class<? extends Record> type) {
 		
 		NdefRecordModelParent parent = ndefRecordModelParentProperty.getParent();
@@ -378,27 +456,21 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 				
 				NdefModelOperation step = new DefaultNdefRecordModelParentPropertyOperation<Record, GcTargetRecord>(gcTargetRecord, ndefRecordModelParentProperty, gcTargetRecord.getTargetIdentifier(), ndefRecordFactory.createRecord(type));
 				
-				addStep(step);
-				
-				step.execute();
+				execute(addOperationStep(step, ndefRecordModelParentProperty));
 			} else if(record instanceof GcActionRecord) {
 
 				GcActionRecord gcActionRecord = (GcActionRecord)record;
 								
 				NdefModelOperation step = new DefaultNdefRecordModelParentPropertyOperation<Record, GcActionRecord>(gcActionRecord, ndefRecordModelParentProperty, gcActionRecord.getActionRecord(), ndefRecordFactory.createRecord(type));
 				
-				addStep(step);
-				
-				step.execute();
+				execute(addOperationStep(step, ndefRecordModelParentProperty));
 
 			} else if(record instanceof HandoverCarrierRecord) {
 				HandoverCarrierRecord handoverCarrierRecord = (HandoverCarrierRecord)record;
 				
 				NdefModelOperation step = new DefaultNdefRecordModelParentPropertyOperation<Record, HandoverCarrierRecord>(handoverCarrierRecord, ndefRecordModelParentProperty, (Record)handoverCarrierRecord.getCarrierType(), ndefRecordFactory.createRecord(type));
 				
-				addStep(step);
-				
-				step.execute();
+				execute(addOperationStep(step, ndefRecordModelParentProperty));
 				
 			} else {
 				throw new RuntimeException();
@@ -419,9 +491,16 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 			NdefModelOperation operation = (NdefModelOperation)undolist.pop();
 	
 			// undo
-			operation.revoke();
+			revoke(operation);
+			
+			// i.e. records replaced by a message of another size
+			updateLazy();
 			
 			redolist.push(operation);
+			
+			long size = getRetainedSize(operation);
+			undoSize -= size;
+			redoSize += size;
 		}
 	}
 	/**
@@ -443,9 +522,15 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 		if(!redolist.empty()) {
 			NdefModelOperation operation = (NdefModelOperation)redolist.pop();
 			
-			operation.execute();
+			execute(operation);
+			
+			updateLazy();
 			
 			undolist.push(operation);
+			
+			long size = getRetainedSize(operation);
+			redoSize -= size;
+			undoSize += size;
 		}
 	}
 	
@@ -458,26 +543,136 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 	}
 
 	/**
-	 * Executes the command and adds a command to undolist, then redolist is cleared.
-	 * undolist.size() will always be less than PROPERTY_MAX_UNDO_STEPS 
-	 * @param encoded 
-	 * @param recordNode 
-	 * @param comm
+	 * Adds a command to undolist, then redolist is cleared.
+	 * undolist.size() will always be less than maxUndoSteps, and the oldest commands are removed
+	 * while the undo and redo lists retain more than maxUndoSize bytes.
+	 * @param operation the operation 
+	 * @param nodes the nodes modified by the operation 
+	 * @return the step to execute
+	 */
+	
+	private NdefModelOperation addOperationStep(NdefModelOperation operation, NdefRecordModelNode ... nodes) {
+		NdefModelOperationStep step = new NdefModelOperationStep(operation, nodes);
+		
+		addStep(step);
+		
+		return step;
+	}
+
+	private void execute(NdefModelOperation operation) {
+		operation.execute();
+		
+		change = NdefModelChange.getChange(operation, false);
+	}
+
+	private void revoke(NdefModelOperation operation) {
+		operation.revoke();
+		
+		change = NdefModelChange.getChange(operation, true);
+	}
+	
+	/**
+	 * 
+	 * Get the nodes affected by the last executed, undone or redone operation.
+	 * 
+	 * @return the changes, or null if unknown
 	 */
 	
-	private void addOperationStep(NdefRecordModelNode node, NdefModelOperation operation) {
-		addStep(operation);
+	public NdefModelChange getChange() {
+		return change;
 	}
 
 	private void addStep(NdefModelOperation step) {
-		undolist.push(step);
+		if(undoListSizeSaveMark > undolist.size()) {
+			// saved state was in the redo list
+			undoListSizeSaveMark = -1;
+		}
+		
+		for(NdefModelOperation operation : redolist) {
+			retainedSizes.remove(operation);
+		}
 		redolist.clear();
+		redoSize = 0;
+
+		long size = NdefModelOperationSize.getRetainedSize(step);
+		retainedSizes.put(step, size);
+
+		undolist.push(step);
+		undoSize += size;
 		
-		if(maxUndoSteps > 0 && undolist.size() > maxUndoSteps){
-			undolist.remove(0);
+		trim();
+	}
+	
+	/**
+	 * 
+	 * Remove the oldest operations while over the step or byte limits. The last operation is always kept.
+	 * 
+	 */
+	
+	private void trim() {
+		while(undolist.size() > 1 && ((maxUndoSteps > 0 && undolist.size() > maxUndoSteps) || (maxUndoSize > 0 && undoSize + redoSize > maxUndoSize))) {
+			NdefModelOperation operation = undolist.remove(0);
+			
+			undoSize -= getRetainedSize(operation);
+			retainedSizes.remove(operation);
 			
-			undoListSizeSaveMark--;
+			if(undoListSizeSaveMark != -1) {
+				undoListSizeSaveMark--;
+			}
+		}
+	}
+	
+	private long getRetainedSize(NdefModelOperation operation) {
+		Long size = retainedSizes.get(operation);
+		if(size != null) {
+			return size.longValue();
 		}
+		return 0;
+	}
+	
+	/**
+	 * 
+	 * Get the estimated number of bytes retained by the undo and redo lists.
+	 * 
+	 * @return estimated size in bytes
+	 */
+	
+	public long getUndoSize() {
+		return undoSize + redoSize;
+	}
+
+	public long getMaxUndoSize() {
+		return maxUndoSize;
+	}
+
+	/**
+	 * 
+	 * Set the maximum number of bytes retained by the undo and redo lists; the oldest operations are removed when exceeded.
+	 * 
+	 * @param maxUndoSize maximum estimated size in bytes, or zero for no limit
+	 */
+	
+	public void setMaxUndoSize(long maxUndoSize) {
+		this.maxUndoSize = maxUndoSize;
+		
+		trim();
+	}
+
+	public int getMaxUndoSteps() {
+		return maxUndoSteps;
+	}
+
+	/**
+	 * 
+	 * Set the maximum number of operations on the undo list.
+	 * 
+	 * @param maxUndoSteps maximum number of operations, or zero for no limit
+	 */
+	
+	public void setMaxUndoSteps(int maxUndoSteps) {
+		this.maxUndoSteps = maxUndoSteps;
+		
+		trim();
 	}
 	
 	public void setRecords(byte[] content) {
@@ -485,11 +680,13 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 			// set the children of the root parent so that all initialized references still point to the correct node
 			NdefRecordModelParent nextModel = loadModel(content);
 			
-			NdefModelReplaceChildRecordsOperation step = new NdefModelReplaceChildRecordsOperation(model, model.getChildren(), nextModel.getChildren());
+			NdefModelReplaceChildRecordsOperation step = new NdefModelReplaceChildRecordsOperation(model, model.getChildren(), share(model.getChildren(), nextModel.getChildren()));
 			
 			addStep(step);
 			
-			step.execute();
+			execute(step);
+			
+			updateLazy();
 		} catch(NdefException e) {
 			e.printStackTrace();
 			// do nothing
@@ -518,14 +715,71 @@ public class NdefModelOperator implements NdefRecordModelChangeListener {
 
 		Record[] records = content.toArray(new Record[content.size()]);
 		
-		NdefModelReplaceChildRecordsOperation step = new NdefModelReplaceChildRecordsOperation(model, model.getChildren(), NdefRecordModelFactory.represent(records).getChildren());
+		NdefModelReplaceChildRecordsOperation step = new NdefModelReplaceChildRecordsOperation(model, model.getChildren(), share(model.getChildren(), NdefRecordModelFactory.represent(records, records.length >= LAZY_RECORD_COUNT).getChildren()));
 		
 		addStep(step);
 		
-		step.execute();
+		execute(step);
+		
+		updateLazy();
 
 	}
 	
+	/**
+	 * 
+	 * Reuse the current record nodes for the next records which encode to the same bytes, so that replacing 
+	 * the records, i.e. when reading the same tag again, keeps the unchanged nodes and their tree state, 
+	 * and the undo step only holds the changed nodes.
+	 * 
+	 * @param current the current record nodes of the model
+	 * @param next the record nodes to replace them
+	 * @return next record nodes, sharing unchanged nodes with the current record nodes
+	 */
+	
+	private List<NdefRecordModelNode> share(List<NdefRecordModelNode> current, List<NdefRecordModelNode> next) {
+		NdefMessageEncoder ndefMessageEncoder = NdefContext.getNdefMessageEncoder();
+		
+		Map<ByteBuffer, LinkedList<NdefRecordModelNode>> unused = new HashMap<ByteBuffer, LinkedList<NdefRecordModelNode>>();
+		for(NdefRecordModelNode node : current) {
+			try {
+				ByteBuffer key = ByteBuffer.wrap(((NdefRecordModelRecord)node).encode(ndefMessageEncoder));
+				
+				LinkedList<NdefRecordModelNode> nodes = unused.get(key);
+				if(nodes == null) {
+					nodes = new LinkedList<NdefRecordModelNode>();
+					
+					unused.put(key, nodes);
+				}
+				nodes.add(node);
+			} catch(RuntimeException e) {
+				// cannot be compared, do not reuse
+			}
+		}
+		
+		List<NdefRecordModelNode> shared = new ArrayList<NdefRecordModelNode>(next.size());
+		for(NdefRecordModelNode node : next) {
+			NdefRecordModelNode reuse = null;
+			try {
+				LinkedList<NdefRecordModelNode> nodes = unused.get(ByteBuffer.wrap(((NdefRecordModelRecord)node).encode(ndefMessageEncoder)));
+				if(nodes != null && !nodes.isEmpty()) {
+					reuse = nodes.removeFirst();
+				}
+			} catch(RuntimeException e) {
+				// cannot be compared, use as is
+			}
+			
+			if(reuse != null) {
+				shared.add(reuse);
+			} else {
+				node.setParent(model);
+				
+				shared.add(node);
+			}
+		}
+		
+		return shared;
+	}
+	
 	/**
 	 * 
 	 * Mark where we are on the current list of operations (undo list) so that we can determine if dirty even when doing undo and redo
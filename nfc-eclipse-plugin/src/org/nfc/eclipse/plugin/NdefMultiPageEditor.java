@@ -80,6 +80,7 @@ import org.eclipse.ui.part.MultiPageEditorPart;
 import org.nfc.eclipse.plugin.terminal.NdefTerminalInput;
 import org.nfc.eclipse.plugin.terminal.NdefTerminalListener;
 import org.nfc.eclipse.plugin.terminal.NdefTerminalStorage;
+import org.nfctools.ndef.NdefContext;
 import org.nfctools.ndef.Record;
 import org.osgi.service.prefs.BackingStoreException;
 import org.osgi.service.prefs.Preferences;
@@ -95,6 +96,28 @@ public class NdefMultiPageEditor extends MultiPageEditorPart implements IResourc
 	
 	private NdefRecordFactory ndefRecordFactory = new NdefRecordFactory();
 	
+	public static File getProjectPath(IEditorInput input) {
+		// find project path
+		
+		IPath projectPath = null;
+		if (input instanceof IPathEditorInput) {
+			IPathEditorInput pathEditorInput = (IPathEditorInput) input;
+			IPath path = pathEditorInput.getPath();
+
+			for(int i = 0; i < path.segmentCount(); i++) {
+				if(path.segment(i).equals("runtime-EclipseApplication")) {
+					projectPath = path.uptoSegment(path.segmentCount() - i + 1);
+					
+					break;
+				}
+			}
+		}
+		if(projectPath != null) {
+			return projectPath.toFile();
+		}
+		return null;
+	}
+	
 	protected boolean dirty = false;
 	
 	protected boolean saveEditorPartPreference = false;
@@ -500,7 +523,7 @@ public class NdefMultiPageEditor extends MultiPageEditorPart implements IResourc
 	
 	
 	public void refreshBinaryQR() {
-		modelOperator.refreshBinaryQR(binaryQRLabel);
+		NdefQRCodeRenderer.refresh(modelOperator, binaryQRLabel);
 	}
 	
 	/**
@@ -598,9 +621,57 @@ public class NdefMultiPageEditor extends MultiPageEditorPart implements IResourc
 		firePropertyChange(IEditorPart.PROP_DIRTY);
 	}
 
+	/**
+	 * 
+	 * Encode the records. Must be called on the UI thread, where the model is modified; the returned 
+	 * message is a snapshot which can be written from another thread while editing continues.
+	 * 
+	 * @return the NDEF message
+	 */
+	
+	public byte[] getNdefMessage() {
+		return modelOperator.toNdefMessage();
+	}
+	
+	/**
+	 * 
+	 * Get a copy of the records, decoded from a snapshot taken on the UI thread, so that tags can be 
+	 * written from other threads without sharing records with the model.
+	 * 
+	 * @throws RuntimeException if the records cannot be encoded
+	 */
+	
 	@Override
 	public List<Record> getNdefRecords() {
-		return modelOperator.getRecords();
+		NdefMessageSnapshot snapshot = new NdefMessageSnapshot();
+		if(Display.getCurrent() != null) {
+			snapshot.run();
+		} else {
+			Display.getDefault().syncExec(snapshot);
+		}
+		
+		if(snapshot.exception != null) {
+			throw snapshot.exception;
+		}
+		
+		if(snapshot.message.length > 0) {
+			return NdefContext.getNdefMessageDecoder().decodeToRecords(snapshot.message);
+		}
+		return new ArrayList<Record>();
+	}
+	
+	private class NdefMessageSnapshot implements Runnable {
+		
+		private byte[] message;
+		private RuntimeException exception;
+		
+		public void run() {
+			try {
+				message = getNdefMessage();
+			} catch(RuntimeException e) {
+				exception = e;
+			}
+		}
 	}
 
 	@Override
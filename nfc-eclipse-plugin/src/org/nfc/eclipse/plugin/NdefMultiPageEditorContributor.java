@@ -42,6 +42,7 @@ public class NdefMultiPageEditorContributor extends MultiPageEditorActionBarCont
 	private IEditorPart activeEditorPart;
 	
 	private StatusLineContributionItem statusLineSizeContributionItem;
+	private StatusLineContributionItem statusLineQRContributionItem;
 	private StatusLineContributionItem statusLineTerminalContributionItem;
 	
 	public NdefMultiPageEditorContributor() {
@@ -76,6 +77,12 @@ public class NdefMultiPageEditorContributor extends MultiPageEditorActionBarCont
 			statusLineManager.add(statusLineSizeContributionItem);
 		}
 
+		if(statusLineQRContributionItem == null) {
+			statusLineQRContributionItem = new StatusLineContributionItem(getClass().getName()+".qr");
+
+			statusLineManager.add(statusLineQRContributionItem);
+		}
+
 		// http://stackoverflow.com/questions/6214042/javax-smartcardio-javadocs
 		try {
 			Class.forName("javax.smartcardio.CardTerminal");
@@ -0,0 +1,278 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.nfc.eclipse.plugin.util.ImageDataUtil;
+
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.binary.BinaryQRCodeWriter;
+import com.google.zxing.qrcode.binary.QRCodeCache;
+import com.google.zxing.qrcode.binary.QRCodeCapacity;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+/**
+ * 
+ * Job for rendering a binary QR code into a label. 
+ * 
+ * Requests are coalesced: only the latest NDEF message is rendered, and a render in progress is cancelled
+ * when a newer message arrives. The finished image is handed to the UI thread, which disposes the image it replaces.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefQRCodeJob extends Job {
+
+	private static final String KEY = NdefQRCodeJob.class.getName();
+	
+	/**
+	 * 
+	 * Get the job for a label, creating it on first use. Must be called from the UI thread.
+	 * 
+	 * @param label the label to render to
+	 * @return the job
+	 */
+	
+	public static NdefQRCodeJob getInstance(Label label) {
+		NdefQRCodeJob job = (NdefQRCodeJob) label.getData(KEY);
+		if(job == null) {
+			job = new NdefQRCodeJob(label);
+			
+			label.setData(KEY, job);
+		}
+		return job;
+	}
+	
+	/** encoded codes shared by all editors, so that resizes and undo / redo skip the encoding step */
+	private static final QRCodeCache cache = new QRCodeCache(32);
+	
+	/**
+	 * 
+	 * Get the shared QR code cache, i.e. for hit / miss statistics.
+	 * 
+	 * @return the cache
+	 */
+	
+	public static QRCodeCache getCache() {
+		return cache;
+	}
+	
+	private final Label label;
+	private final Display display;
+	
+	private BinaryQRCodeWriter writer = new BinaryQRCodeWriter();
+
+	/** image currently shown in the label, only accessed from the UI thread */
+	private Image image;
+	
+	/** latest request, guarded by this */
+	private byte[] ndef;
+	private int size;
+	private int revision = 0;
+
+	private NdefQRCodeJob(Label label) {
+		super("Render QR code");
+		
+		this.label = label;
+		this.display = label.getDisplay();
+		
+		setSystem(true);
+		setPriority(Job.INTERACTIVE);
+		
+		writer.setCache(cache);
+		writer.setParallelMaskSearch(true);
+		
+		label.addDisposeListener(new DisposeListener() {
+			public void widgetDisposed(DisposeEvent e) {
+				cancel();
+				
+				disposeImage();
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * Render an NDEF message at the current size of the label. Must be called from the UI thread.
+	 * 
+	 * @param ndef the NDEF message
+	 */
+	
+	public void render(byte[] ndef) {
+		Point size = label.getSize();
+		
+		synchronized(this) {
+			this.ndef = ndef;
+			this.size = Math.min(size.x, size.y);
+			this.revision++;
+		}
+		
+		// cancel any stale render; the job is rescheduled if running
+		cancel();
+		schedule();
+	}
+	
+	/**
+	 * 
+	 * Cancel any pending render and remove the image from the label. Must be called from the UI thread.
+	 * 
+	 */
+	
+	public void clear() {
+		synchronized(this) {
+			this.ndef = null;
+			this.revision++;
+		}
+		
+		cancel();
+		
+		if(!label.isDisposed()) {
+			label.setImage(null);
+			label.setToolTipText(null);
+		}
+		
+		disposeImage();
+	}
+	
+	private void disposeImage() {
+		if(image != null) {
+			image.dispose();
+			
+			image = null;
+		}
+	}
+
+	private synchronized boolean isCurrent(int revision) {
+		return this.revision == revision;
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		byte[] ndef;
+		int size;
+		final int revision;
+		synchronized(this) {
+			ndef = this.ndef;
+			size = this.size;
+			revision = this.revision;
+		}
+		
+		if(ndef == null || monitor.isCanceled()) {
+			return Status.CANCEL_STATUS;
+		}
+
+		final ImageData imageData;
+		final int symbols;
+		try {
+			writer.setAligment(0, 0);
+
+			if(ndef.length <= NdefModelOperator.MAX_BINARY_QR_PAYLOAD) {
+				symbols = 1;
+				
+				//get a byte matrix for the data
+				BitMatrix matrix = writer.encode(ndef, com.google.zxing.BarcodeFormat.QR_CODE, size, size);
+	
+				if(monitor.isCanceled() || !isCurrent(revision)) {
+					return Status.CANCEL_STATUS;
+				}
+	
+				//generate an image from the byte matrix
+				imageData = ImageDataUtil.toImageData(matrix);
+			} else {
+				// too large for a single symbol, split over a structured append sequence shown in a grid
+				symbols = QRCodeCapacity.getStructuredAppendSymbols(ndef.length, ErrorCorrectionLevel.L);
+				
+				int columns = (int)Math.ceil(Math.sqrt(symbols));
+				
+				BitMatrix[] matrices = writer.encodeStructuredAppend(ndef, size / columns, size / columns, null);
+
+				if(monitor.isCanceled() || !isCurrent(revision)) {
+					return Status.CANCEL_STATUS;
+				}
+
+				imageData = ImageDataUtil.toImageData(matrices, columns);
+			}
+		} catch (Exception e) {
+			Activator.error("Cannot create ", e);
+			
+			display.asyncExec(new Runnable() {
+				public void run() {
+					if(isCurrent(revision)) {
+						clear();
+					}
+				}
+			});
+			
+			return Status.OK_STATUS;
+		}
+		
+		if(monitor.isCanceled() || !isCurrent(revision)) {
+			return Status.CANCEL_STATUS;
+		}
+
+		Activator.info("NDEF size is " + ndef.length + ", set image size " + size + "x" + size + " with " + symbols + " symbol(s), cache hits " + cache.getHits() + " misses " + cache.getMisses());
+
+		display.asyncExec(new Runnable() {
+			public void run() {
+				// ignore results which have been overtaken by a newer request
+				if(label.isDisposed() || !isCurrent(revision)) {
+					return;
+				}
+				
+				Image previous = image;
+				
+				image = new Image(display, imageData);
+				label.setImage(image);
+				
+				if(symbols > 1) {
+					label.setToolTipText("Structured append sequence of " + symbols + " QR codes, scan left to right, top to bottom");
+				} else {
+					label.setToolTipText(null);
+				}
+				
+				if(previous != null) {
+					previous.dispose();
+				}
+			}
+		});
+		
+		return Status.OK_STATUS;
+	}
+
+}
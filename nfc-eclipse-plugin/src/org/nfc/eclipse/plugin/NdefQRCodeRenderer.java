@@ -0,0 +1,107 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+package org.nfc.eclipse.plugin;
+
+import org.eclipse.swt.widgets.Label;
+import org.nfctools.ndef.NdefEncoderException;
+
+/**
+ * 
+ * Shows the NDEF message of a model in a label as binary QR codes. Kept apart from {@link NdefModelOperator} 
+ * so that the operator does not depend on SWT.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefQRCodeRenderer {
+
+	/**
+	 * 
+	 * Refresh the binary QR code in a label. The QR code is rendered in the background, see {@link NdefQRCodeJob}.
+	 * 
+	 * @param operator the model
+	 * @param label the label
+	 * @return true if there is content to show
+	 */
+	
+	public static boolean refresh(NdefModelOperator operator, Label label) {
+		return refresh(operator, label, false);
+	}
+
+	/**
+	 * 
+	 * Refresh the binary QR code in a label. Messages too large for a sequence of QR codes are 
+	 * streamed as an animation, see {@link NdefQRStreamJob}.
+	 * 
+	 * @param operator the model
+	 * @param label the label
+	 * @param stream stream the message as an animation regardless of size
+	 * @return true if there is content to show
+	 */
+	
+	public static boolean refresh(NdefModelOperator operator, Label label, boolean stream) {
+		
+		// implementation note: Label seems to display an image OR an label, whatever is set last.
+		NdefQRCodeJob job = NdefQRCodeJob.getInstance(label);
+		NdefQRStreamJob streamJob = NdefQRStreamJob.getInstance(label);
+		try {
+
+			byte[] ndef = operator.toNdefMessage();
+
+			if(ndef.length > 0) {
+				// too large for a sequence of QR codes: stream, so that the encoder never has to fail on size
+				if(stream || ndef.length > NdefModelOperator.MAX_STRUCTURED_APPEND_QR_PAYLOAD) {
+					job.clear();
+					
+					streamJob.stream(ndef);
+				} else {
+					streamJob.clear();
+					
+					job.render(ndef);
+				}
+				
+				return true;
+			} else {
+				Activator.info("NDEF size is zero");
+				
+				streamJob.clear();
+				job.clear();
+			}
+		} catch(NdefEncoderException e) {
+			Activator.error("Cannot create: " + e.getMessage());
+			streamJob.clear();
+			job.clear();
+		} catch (Exception e) {
+			Activator.error("Cannot create ", e);
+			streamJob.clear();
+			job.clear();
+		}
+		return false;
+	}
+
+}
\ No newline at end of file
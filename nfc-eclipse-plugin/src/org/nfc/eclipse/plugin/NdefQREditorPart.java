@@ -29,10 +29,14 @@ package org.nfc.eclipse.plugin;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.ControlAdapter;
 import org.eclipse.swt.events.ControlEvent;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Menu;
+import org.eclipse.swt.widgets.MenuItem;
 import org.nfc.eclipse.plugin.model.NdefRecordModelChangeListener;
 
 
@@ -41,6 +45,7 @@ public class NdefQREditorPart extends NdefEditorPart implements NdefRecordModelC
 	private Label binaryQRLabel;
 	private Composite composite;
 	private boolean qrShows = true;
+	private boolean qrStream = false;
 	
 	public NdefQREditorPart(NdefModelOperator operator, NdefMultiPageEditor ndefMultiPageEditor) {
 		super(operator, ndefMultiPageEditor);
@@ -79,6 +84,18 @@ public class NdefQREditorPart extends NdefEditorPart implements NdefRecordModelC
 			}
 		});
 		
+		Menu menu = new Menu(binaryQRLabel);
+		final MenuItem streamItem = new MenuItem(menu, SWT.CHECK);
+		streamItem.setText("Animated QR stream");
+		streamItem.addSelectionListener(new SelectionAdapter() {
+			public void widgetSelected(SelectionEvent e) {
+				qrStream = streamItem.getSelection();
+				
+				refreshBinaryQR();
+			}
+		});
+		binaryQRLabel.setMenu(menu);
+		
 		this.composite = composite;
 	}
 
@@ -101,7 +118,7 @@ public class NdefQREditorPart extends NdefEditorPart implements NdefRecordModelC
 	}
 
 	public void refreshBinaryQR() {
-		if(operator.refreshBinaryQR(binaryQRLabel)) {
+		if(NdefQRCodeRenderer.refresh(operator, binaryQRLabel, qrStream)) {
 			showQR();
 		} else {
 			hideQR();
@@ -0,0 +1,315 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+package org.nfc.eclipse.plugin;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.nfc.eclipse.plugin.util.ImageDataUtil;
+
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.binary.BinaryQRCodeWriter;
+import com.google.zxing.qrcode.binary.FountainEncoder;
+
+/**
+ * 
+ * Job for streaming an NDEF message as an animation of fountain coded QR codes, for messages
+ * too large for a structured append sequence. Any large enough set of frames decodes the message,
+ * so the receiver may start at any frame and miss some.
+ * 
+ * The job renders frames ahead into a bounded queue, while a UI timer shows them at a fixed rate. 
+ * Both are paused while the label is hidden, i.e. on another editor page, and resumed when streamed again.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefQRStreamJob extends Job {
+
+	/** bytes per frame, gives QR codes of version 15 */
+	public static final int BLOCK_SIZE = 400;
+	
+	/** time each frame is shown, in milliseconds */
+	private static final int FRAME_INTERVAL = 200;
+	
+	/** number of frames rendered ahead of the one shown */
+	private static final int FRAMES_AHEAD = 8;
+	
+	private static final String KEY = NdefQRStreamJob.class.getName();
+	
+	/**
+	 * 
+	 * Get the job for a label, creating it on first use. Must be called from the UI thread.
+	 * 
+	 * @param label the label to stream to
+	 * @return the job
+	 */
+	
+	public static NdefQRStreamJob getInstance(Label label) {
+		NdefQRStreamJob job = (NdefQRStreamJob) label.getData(KEY);
+		if(job == null) {
+			job = new NdefQRStreamJob(label);
+			
+			label.setData(KEY, job);
+		}
+		return job;
+	}
+	
+	private static class Frame {
+		
+		private final int revision;
+		private final ImageData imageData;
+		
+		public Frame(int revision, ImageData imageData) {
+			this.revision = revision;
+			this.imageData = imageData;
+		}
+	}
+	
+	private final Label label;
+	private final Display display;
+	
+	private BinaryQRCodeWriter writer = new BinaryQRCodeWriter();
+
+	private final BlockingQueue<Frame> frames = new ArrayBlockingQueue<Frame>(FRAMES_AHEAD);
+	
+	/** image currently shown in the label, only accessed from the UI thread */
+	private Image image;
+	
+	/** whether the display timer is running, only accessed from the UI thread */
+	private boolean animating = false;
+	
+	/** latest request, guarded by this */
+	private byte[] ndef;
+	private FountainEncoder encoder;
+	private int size;
+	private int revision = 0;
+
+	private final Runnable showNextFrame = new Runnable() {
+		public void run() {
+			if(label.isDisposed() || !animating) {
+				animating = false;
+				
+				return;
+			}
+			
+			if(!label.isVisible()) {
+				// stop rendering frames nobody sees
+				animating = false;
+				
+				cancel();
+				
+				return;
+			}
+			
+			Frame frame = frames.poll();
+			if(frame != null && isCurrent(frame.revision)) {
+				Image previous = image;
+				
+				image = new Image(display, frame.imageData);
+				label.setImage(image);
+				
+				if(previous != null) {
+					previous.dispose();
+				}
+			}
+			
+			display.timerExec(FRAME_INTERVAL, this);
+		}
+	};
+	
+	private NdefQRStreamJob(Label label) {
+		super("Stream QR codes");
+		
+		this.label = label;
+		this.display = label.getDisplay();
+		
+		setSystem(true);
+		setPriority(Job.INTERACTIVE);
+		
+		writer.setParallelMaskSearch(true);
+		
+		label.addDisposeListener(new DisposeListener() {
+			public void widgetDisposed(DisposeEvent e) {
+				cancel();
+				
+				animating = false;
+				
+				disposeImage();
+			}
+		});
+	}
+
+	/**
+	 * 
+	 * Stream an NDEF message at the current size of the label. Keeps streaming if the message and 
+	 * size are unchanged. Must be called from the UI thread.
+	 * 
+	 * @param ndef the NDEF message
+	 */
+	
+	public void stream(byte[] ndef) {
+		Point point = label.getSize();
+		int size = Math.min(point.x, point.y);
+		
+		int blocks;
+		synchronized(this) {
+			if(this.ndef != null && this.size == size && Arrays.equals(this.ndef, ndef)) {
+				// unchanged, resume if paused
+				if(!animating) {
+					schedule();
+					
+					animate();
+				}
+				return;
+			}
+			this.ndef = ndef;
+			this.encoder = new FountainEncoder(ndef, BLOCK_SIZE);
+			this.size = size;
+			this.revision++;
+			
+			blocks = encoder.getBlockCount();
+			
+			Activator.info("Stream NDEF size " + ndef.length + " as " + blocks + " blocks");
+		}
+		frames.clear();
+		
+		// cancel any stale render; the job is rescheduled if running
+		cancel();
+		schedule();
+		
+		label.setToolTipText("Animated QR stream, keep scanning until all " + blocks + " blocks are received");
+		
+		animate();
+	}
+	
+	private void animate() {
+		if(!animating) {
+			animating = true;
+			
+			display.timerExec(FRAME_INTERVAL, showNextFrame);
+		}
+	}
+	
+	/**
+	 * 
+	 * Stop streaming and remove the image from the label, if streaming. Must be called from the UI thread.
+	 * 
+	 */
+	
+	public void clear() {
+		synchronized(this) {
+			if(this.ndef == null) {
+				return;
+			}
+			this.ndef = null;
+			this.encoder = null;
+			this.revision++;
+		}
+		
+		cancel();
+		frames.clear();
+		
+		animating = false;
+		
+		if(!label.isDisposed()) {
+			label.setImage(null);
+			label.setToolTipText(null);
+		}
+		
+		disposeImage();
+	}
+	
+	private void disposeImage() {
+		if(image != null) {
+			image.dispose();
+			
+			image = null;
+		}
+	}
+
+	private synchronized boolean isCurrent(int revision) {
+		return this.revision == revision;
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		FountainEncoder encoder;
+		int size;
+		int revision;
+		synchronized(this) {
+			encoder = this.encoder;
+			size = this.size;
+			revision = this.revision;
+		}
+
+		writer.setAligment(0, 0);
+
+		int seed = 0;
+		while(encoder != null && !monitor.isCanceled() && isCurrent(revision)) {
+			Frame frame;
+			try {
+				BitMatrix matrix = writer.encode(encoder.getFrame(seed), com.google.zxing.BarcodeFormat.QR_CODE, size, size);
+				
+				frame = new Frame(revision, ImageDataUtil.toImageData(matrix));
+			} catch (Exception e) {
+				Activator.error("Cannot create ", e);
+				
+				return Status.OK_STATUS;
+			}
+			
+			// wait for the display to catch up
+			try {
+				while(!frames.offer(frame, FRAME_INTERVAL, TimeUnit.MILLISECONDS)) {
+					if(monitor.isCanceled() || !isCurrent(revision)) {
+						return Status.CANCEL_STATUS;
+					}
+				}
+			} catch (InterruptedException e) {
+				return Status.CANCEL_STATUS;
+			}
+			
+			seed++;
+		}
+		
+		return Status.CANCEL_STATUS;
+	}
+
+}
@@ -39,6 +39,7 @@ import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
+import org.nfc.eclipse.plugin.util.Log;
 import org.nfctools.ndef.NdefConstants;
 import org.nfctools.ndef.Record;
 import org.nfctools.ndef.auri.AbsoluteUriRecord;
@@ -296,7 +297,7 @@ public class NdefRecordFactory {
 	 */
 	
 	public static void connect(Record parent, Record child) {
-		Activator.info("Connect " + parent.getClass().getSimpleName() + " to " + child.getClass().getSimpleName());
+		Log.info("Connect " + parent.getClass().getSimpleName() + " to " + child.getClass().getSimpleName());
 		if(parent instanceof GcDataRecord) {
 			GcDataRecord gcDataRecord = (GcDataRecord)parent;
 			
@@ -343,7 +344,7 @@ public class NdefRecordFactory {
 
 	
 	public static void disconnect(Record parent, Record child) {
-		Activator.info("Disconnect child " + child.getClass().getSimpleName() + " from " + parent.getClass().getSimpleName());
+		Log.info("Disconnect child " + child.getClass().getSimpleName() + " from " + parent.getClass().getSimpleName());
 		
 		if(parent instanceof GcDataRecord) {
 			GcDataRecord gcDataRecord = (GcDataRecord)parent;
@@ -0,0 +1,152 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+import org.nfc.eclipse.ndef.signature.SignatureVerificationCache;
+import org.nfctools.ndef.wkt.records.SignatureRecord.CertificateFormat;
+import org.nfctools.ndef.wkt.records.SignatureRecord.SignatureType;
+
+/**
+ * 
+ * Job for verifying signatures in the background. Requests for the same inputs are merged, 
+ * and the results are stored in the {@link SignatureVerificationCache}. The listener is notified 
+ * on the UI thread with the elements which requested each result.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefSignatureVerificationJob extends Job {
+
+	public interface Listener {
+		
+		void verified(Object[] elements);
+	}
+	
+	private static class Request {
+		
+		private CertificateFormat certificateFormat;
+		private byte[] certificateBytes;
+		private SignatureType signatureType;
+		private byte[] signatureBytes;
+		private byte[] coveredBytes;
+		
+		private List<Object> elements = new ArrayList<Object>();
+	}
+	
+	private final Display display;
+	private final Listener listener;
+	
+	/** pending requests by key, guarded by this */
+	private Map<String, Request> requests = new LinkedHashMap<String, Request>();
+	
+	public NdefSignatureVerificationJob(Display display, Listener listener) {
+		super("Verify signature");
+		
+		this.display = display;
+		this.listener = listener;
+		
+		setSystem(true);
+		setPriority(Job.SHORT);
+	}
+	
+	/**
+	 * 
+	 * Request verification of a signature. Check {@link SignatureVerificationCache#get(String)} first.
+	 * 
+	 * @param key the key of the inputs, from {@link SignatureVerificationCache#getKey(CertificateFormat, byte[], SignatureType, byte[], byte[])}
+	 * @param element the element to notify the listener of when verified
+	 */
+	
+	public void verify(String key, CertificateFormat certificateFormat, byte[] certificateBytes, SignatureType signatureType, byte[] signatureBytes, byte[] coveredBytes, Object element) {
+		synchronized(this) {
+			Request request = requests.get(key);
+			if(request == null) {
+				request = new Request();
+				request.certificateFormat = certificateFormat;
+				request.certificateBytes = certificateBytes;
+				request.signatureType = signatureType;
+				request.signatureBytes = signatureBytes;
+				request.coveredBytes = coveredBytes;
+				
+				requests.put(key, request);
+			}
+			if(!request.elements.contains(element)) {
+				request.elements.add(element);
+			}
+		}
+		
+		schedule();
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		while(!monitor.isCanceled()) {
+			String key;
+			Request request;
+			synchronized(this) {
+				if(requests.isEmpty()) {
+					break;
+				}
+				key = requests.keySet().iterator().next();
+				request = requests.remove(key);
+			}
+			
+			SignatureVerificationCache.verify(key, request.certificateFormat, request.certificateBytes, request.signatureType, request.signatureBytes, request.coveredBytes);
+			
+			final Object[] elements = request.elements.toArray();
+			
+			if(!display.isDisposed()) {
+				display.asyncExec(new Runnable() {
+					public void run() {
+						listener.verified(elements);
+					}
+				});
+			}
+		}
+		
+		if(monitor.isCanceled()) {
+			synchronized(this) {
+				requests.clear();
+			}
+			return Status.CANCEL_STATUS;
+		}
+		return Status.OK_STATUS;
+	}
+
+}
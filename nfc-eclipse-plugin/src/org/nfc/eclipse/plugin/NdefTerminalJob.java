@@ -0,0 +1,267 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+package org.nfc.eclipse.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+import org.nfctools.ndef.NdefContext;
+import org.nfctools.ndef.NdefOperations;
+import org.nfctools.ndef.Record;
+
+/**
+ * 
+ * Job for reading, writing or formatting a tag, so that slow tags do not block the UI thread. 
+ * Jobs on the same tag run one at a time. Tag i/o cannot be interrupted, so cancellation takes 
+ * effect between the steps of an operation; a cancelled job does not notify its listener. 
+ * Otherwise the listener is notified on the UI thread with the result and the time taken. 
+ * Messages to write are passed encoded, so that the job does not share records with the editor.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefTerminalJob extends Job {
+
+	public enum Operation {
+		
+		READ("Read"), WRITE("Write"), FORMAT("Format"), READ_ONLY("Set read-only");
+		
+		private final String label;
+
+		private Operation(String label) {
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+	}
+	
+	public interface Listener {
+		
+		void completed(NdefTerminalJob job);
+	}
+	
+	/**
+	 * 
+	 * Rule which serializes jobs on the same tag. Threads doing i/o on a tag outside of a job 
+	 * should hold it too, i.e. using the job manager's beginRule and endRule.
+	 * 
+	 */
+	
+	public static class TagRule implements ISchedulingRule {
+		
+		private final NdefOperations ndefOperations;
+
+		public TagRule(NdefOperations ndefOperations) {
+			this.ndefOperations = ndefOperations;
+		}
+
+		public boolean contains(ISchedulingRule rule) {
+			return rule == this;
+		}
+
+		public boolean isConflicting(ISchedulingRule rule) {
+			return rule instanceof TagRule && ((TagRule)rule).ndefOperations == ndefOperations;
+		}
+	}
+	
+	private final Operation operation;
+	private final NdefOperations ndefOperations;
+	private final byte[] message;
+	
+	private final Display display;
+	private final Listener listener;
+	
+	/** results, handed to the listener on the UI thread */
+	private List<Record> readRecords;
+	private Exception exception;
+	private long duration = -1;
+	
+	/**
+	 * 
+	 * @param operation the operation
+	 * @param ndefOperations the tag
+	 * @param message the encoded message to write, or null if not writing
+	 * @param display the display to notify the listener on
+	 * @param listener the listener
+	 */
+	
+	public NdefTerminalJob(Operation operation, NdefOperations ndefOperations, byte[] message, Display display, Listener listener) {
+		super(operation.getLabel() + " tag");
+		
+		this.operation = operation;
+		this.ndefOperations = ndefOperations;
+		this.message = message;
+		this.display = display;
+		this.listener = listener;
+		
+		setRule(new TagRule(ndefOperations));
+		setPriority(Job.SHORT);
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		long time = System.currentTimeMillis();
+		
+		try {
+			if(operation == Operation.READ) {
+				monitor.beginTask(getName(), 2);
+				
+				read(monitor);
+			} else if(operation == Operation.WRITE) {
+				monitor.beginTask(getName(), 3);
+				
+				write(monitor);
+			} else if(operation == Operation.FORMAT) {
+				monitor.beginTask(getName(), 1);
+				
+				checkCanceled(monitor);
+				ndefOperations.format();
+				monitor.worked(1);
+			} else if(operation == Operation.READ_ONLY) {
+				monitor.beginTask(getName(), 1);
+				
+				checkCanceled(monitor);
+				ndefOperations.makeReadOnly();
+				monitor.worked(1);
+			}
+		} catch(OperationCanceledException e) {
+			Activator.info(operation.getLabel() + " cancelled");
+			
+			return Status.CANCEL_STATUS;
+		} catch(Exception e) {
+			exception = e;
+		} finally {
+			monitor.done();
+		}
+		
+		duration = System.currentTimeMillis() - time;
+
+		Activator.info(operation.getLabel() + (exception == null ? " completed" : " failed") + " in " + duration + " ms");
+
+		if(!display.isDisposed()) {
+			display.asyncExec(new Runnable() {
+				public void run() {
+					listener.completed(NdefTerminalJob.this);
+				}
+			});
+		}
+		
+		// failures are reported by the listener
+		return Status.OK_STATUS;
+	}
+
+	private void read(IProgressMonitor monitor) {
+		monitor.subTask("Check format");
+		checkCanceled(monitor);
+		boolean formatted = ndefOperations.isFormatted();
+		monitor.worked(1);
+
+		monitor.subTask("Read NDEF message");
+		checkCanceled(monitor);
+		if(formatted && ndefOperations.hasNdefMessage()) {
+			readRecords = ndefOperations.readNdefMessage();
+		} else {
+			readRecords = new ArrayList<Record>();
+		}
+		monitor.worked(1);
+	}
+
+	private void write(IProgressMonitor monitor) {
+		monitor.subTask("Decode NDEF message");
+		checkCanceled(monitor);
+		// records of our own, the message was encoded on the UI thread
+		List<Record> records;
+		if(message.length > 0) {
+			records = NdefContext.getNdefMessageDecoder().decodeToRecords(message);
+		} else {
+			records = new ArrayList<Record>();
+		}
+		monitor.worked(1);
+		
+		monitor.subTask("Check format");
+		checkCanceled(monitor);
+		boolean formatted = ndefOperations.isFormatted();
+		monitor.worked(1);
+
+		monitor.subTask("Write NDEF message");
+		checkCanceled(monitor);
+		if(formatted) {
+			ndefOperations.writeNdefMessage(records.toArray(new Record[records.size()]));
+		} else {
+			ndefOperations.format(records.toArray(new Record[records.size()]));
+		}
+		monitor.worked(1);
+	}
+	
+	private void checkCanceled(IProgressMonitor monitor) {
+		if(monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	/**
+	 * 
+	 * @return the records read, or null if not reading or failed
+	 */
+	
+	public List<Record> getReadRecords() {
+		return readRecords;
+	}
+
+	/**
+	 * 
+	 * @return cause of failure, or null if the operation was successful
+	 */
+	
+	public Exception getException() {
+		return exception;
+	}
+
+	/**
+	 * 
+	 * @return time taken in milliseconds
+	 */
+	
+	public long getDuration() {
+		return duration;
+	}
+	
+}
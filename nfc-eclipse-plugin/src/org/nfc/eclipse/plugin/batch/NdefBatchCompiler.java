@@ -0,0 +1,251 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.batch;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.nfc.eclipse.plugin.NdefModelOperator;
+import org.nfc.eclipse.plugin.NdefRecordFactory;
+import org.nfctools.ndef.NdefContext;
+import org.nfctools.ndef.Record;
+
+/**
+ * 
+ * Headless compiler which applies the same edits to a set of NDEF files, without starting Eclipse. 
+ * Each file is loaded, edited and saved through its own {@link NdefModelOperator}, so the output is 
+ * identical to what the editor would write. Files are processed concurrently.<br/><br/>
+ * 
+ * Usage: NdefBatchCompiler &lt;edits.xml&gt; &lt;input file or directory&gt; &lt;output directory&gt; [threads]
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefBatchCompiler {
+
+	public static class Result {
+		
+		private final File file;
+		private final long bytes;
+		private final Exception exception;
+		
+		public Result(File file, long bytes, Exception exception) {
+			this.file = file;
+			this.bytes = bytes;
+			this.exception = exception;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * 
+		 * @return size of the output NDEF message
+		 */
+		
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * 
+		 * @return cause of failure, or null if the file was compiled
+		 */
+		
+		public Exception getException() {
+			return exception;
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		if(args.length < 3 || args.length > 4) {
+			System.err.println("Usage: " + NdefBatchCompiler.class.getName() + " <edits.xml> <input file or directory> <output directory> [threads]");
+			
+			System.exit(2);
+		}
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		if(args.length == 4) {
+			threads = Integer.parseInt(args[3]);
+		}
+		
+		NdefBatchEdits edits = NdefBatchEdits.load(new File(args[0]));
+		
+		File input = new File(args[1]);
+		File[] files;
+		if(input.isDirectory()) {
+			files = input.listFiles(new FileFilter() {
+				public boolean accept(File file) {
+					return file.isFile();
+				}
+			});
+		} else {
+			files = new File[]{input};
+		}
+		
+		File output = new File(args[2]);
+		if(!output.isDirectory() && !output.mkdirs()) {
+			throw new IOException("Unable to create output directory " + output);
+		}
+		
+		NdefBatchCompiler compiler = new NdefBatchCompiler(edits, threads);
+		
+		long time = System.currentTimeMillis();
+		List<Result> results;
+		try {
+			results = compiler.compile(files, output);
+		} finally {
+			compiler.shutdown();
+		}
+		time = Math.max(1, System.currentTimeMillis() - time);
+		
+		int failures = 0;
+		long bytes = 0;
+		for(Result result : results) {
+			if(result.getException() != null) {
+				failures++;
+				
+				System.err.println(result.getFile() + ": " + result.getException().getMessage());
+			} else {
+				bytes += result.getBytes();
+			}
+		}
+		
+		int compiled = results.size() - failures;
+		System.out.println("Compiled " + compiled + " of " + results.size() + " files in " + time + "ms using " + threads + " thread(s); " + (compiled * 1000L / time) + " files/s, " + (bytes * 1000L / time) + " bytes/s");
+		
+		if(failures > 0) {
+			System.exit(1);
+		}
+	}
+	
+	private final NdefBatchEdits edits;
+	private final ExecutorService executor;
+	
+	public NdefBatchCompiler(NdefBatchEdits edits, int threads) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("Expected at least one thread");
+		}
+		this.edits = edits;
+		this.executor = Executors.newFixedThreadPool(threads);
+	}
+	
+	/**
+	 * 
+	 * Compile files into a directory, keeping their names. Failures are reported per file.
+	 * 
+	 * @param files the input files
+	 * @param output the output directory
+	 * @return results in the same order as the input files
+	 * @throws InterruptedException
+	 */
+	
+	public List<Result> compile(File[] files, final File output) throws InterruptedException {
+		List<Future<Result>> futures = new ArrayList<Future<Result>>(files.length);
+		for(final File file : files) {
+			futures.add(executor.submit(new Callable<Result>() {
+				public Result call() {
+					return compile(file, new File(output, file.getName()));
+				}
+			}));
+		}
+		
+		List<Result> results = new ArrayList<Result>(files.length);
+		for(int i = 0; i < files.length; i++) {
+			try {
+				results.add(futures.get(i).get());
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				
+				results.add(new Result(files[i], 0, cause instanceof Exception ? (Exception)cause : e));
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 
+	 * Compile a single file.
+	 * 
+	 * @param in the input file
+	 * @param out the output file
+	 * @return the result
+	 */
+	
+	public Result compile(File in, File out) {
+		try {
+			// operators are not thread safe, use one per file
+			NdefRecordFactory ndefRecordFactory = new NdefRecordFactory(in.getParentFile());
+			NdefModelOperator operator = new NdefModelOperator(ndefRecordFactory);
+			
+			InputStream fin = new FileInputStream(in);
+			try {
+				operator.load(fin);
+			} finally {
+				try {
+					fin.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+			
+			// edit copies, the loaded records belong to model nodes which have cached their encoding
+			List<Record> records;
+			if(operator.getModel().getSize() > 0) {
+				records = NdefContext.getNdefMessageDecoder().decodeToRecords(operator.toNdefMessage());
+			} else {
+				records = new ArrayList<Record>();
+			}
+			
+			edits.apply(records, ndefRecordFactory);
+			
+			operator.setRecords(records);
+			operator.save(out);
+			
+			return new Result(in, out.length(), null);
+		} catch(Exception e) {
+			return new Result(in, 0, e);
+		}
+	}
+	
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,378 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.batch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.nfc.eclipse.plugin.NdefRecordFactory;
+import org.nfc.eclipse.plugin.model.NdefRecordType;
+import org.nfctools.ndef.Record;
+
+/**
+ * 
+ * Declarative edits of the root records of an NDEF message, read from XML:
+ * 
+ * <pre>
+ * &lt;edits&gt;
+ *   &lt;clear/&gt;
+ *   &lt;add type="UriRecord" index="0"&gt;
+ *     &lt;property name="uri" value="http://www.example.com"/&gt;
+ *   &lt;/add&gt;
+ *   &lt;set index="0" name="uri" value="http://www.example.com/other"/&gt;
+ *   &lt;remove index="1"/&gt;
+ *   &lt;move from="1" to="0"/&gt;
+ * &lt;/edits&gt;
+ * </pre>
+ * 
+ * Records are created with {@link NdefRecordFactory}, properties are set through the record setters. 
+ * Supported property types are strings, numbers, booleans, enums, charsets, locales (i.e. en_US) and 
+ * byte arrays (hex). Indexes are zero-based, negative indexes count from the end. Edits are immutable 
+ * and may be applied concurrently.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefBatchEdits {
+
+	private static abstract class Edit {
+		
+		protected abstract void apply(List<Record> records, NdefRecordFactory ndefRecordFactory);
+	}
+	
+	private static class Property {
+		
+		private final String name;
+		private final String value;
+		
+		public Property(String name, String value) {
+			this.name = name;
+			this.value = value;
+		}
+	}
+	
+	private static class ClearEdit extends Edit {
+
+		@Override
+		protected void apply(List<Record> records, NdefRecordFactory ndefRecordFactory) {
+			records.clear();
+		}
+	}
+
+	private static class AddEdit extends Edit {
+
+		private final Class<? extends Record> type;
+		private final String index;
+		private final List<Property> properties;
+		
+		public AddEdit(Class<? extends Record> type, String index, List<Property> properties) {
+			this.type = type;
+			this.index = index;
+			this.properties = properties;
+		}
+
+		@Override
+		protected void apply(List<Record> records, NdefRecordFactory ndefRecordFactory) {
+			Record record = ndefRecordFactory.createRecord(type);
+			
+			for(Property property : properties) {
+				setProperty(record, property.name, property.value);
+			}
+			
+			if(index == null) {
+				records.add(record);
+			} else {
+				records.add(toIndex(index, records.size() + 1), record);
+			}
+		}
+	}
+
+	private static class SetEdit extends Edit {
+
+		private final String index;
+		private final Property property;
+		
+		public SetEdit(String index, Property property) {
+			this.index = index;
+			this.property = property;
+		}
+
+		@Override
+		protected void apply(List<Record> records, NdefRecordFactory ndefRecordFactory) {
+			setProperty(records.get(toIndex(index, records.size())), property.name, property.value);
+		}
+	}
+
+	private static class RemoveEdit extends Edit {
+
+		private final String index;
+		
+		public RemoveEdit(String index) {
+			this.index = index;
+		}
+
+		@Override
+		protected void apply(List<Record> records, NdefRecordFactory ndefRecordFactory) {
+			records.remove(toIndex(index, records.size()));
+		}
+	}
+
+	private static class MoveEdit extends Edit {
+
+		private final String from;
+		private final String to;
+		
+		public MoveEdit(String from, String to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void apply(List<Record> records, NdefRecordFactory ndefRecordFactory) {
+			Record record = records.remove(toIndex(from, records.size()));
+			
+			records.add(toIndex(to, records.size() + 1), record);
+		}
+	}
+
+	/**
+	 * 
+	 * Read edits from an XML file.
+	 * 
+	 * @param file the file
+	 * @return the edits
+	 * @throws IOException if the file cannot be read or is not valid
+	 */
+	
+	public static NdefBatchEdits load(File file) throws IOException {
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			
+			return load(in);
+		} finally {
+			if(in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	public static NdefBatchEdits load(InputStream in) throws IOException {
+		List<Edit> edits = new ArrayList<Edit>();
+		
+		try {
+			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+
+			int event = reader.nextTag();
+			if(event != XMLStreamConstants.START_ELEMENT || !reader.getLocalName().equals("edits")) {
+				throw new IOException("Expected edits element");
+			}
+			
+			while(reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				String localName = reader.getLocalName();
+				
+				if(localName.equals("clear")) {
+					edits.add(new ClearEdit());
+				} else if(localName.equals("add")) {
+					String typeName = required(reader, "type");
+					NdefRecordType type = NdefRecordType.getType(typeName);
+					if(type == null) {
+						throw new IOException("Unknown record type " + typeName + " at line " + reader.getLocation().getLineNumber());
+					}
+					String index = index(reader, "index", false);
+					
+					List<Property> properties = new ArrayList<Property>();
+					while(reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+						if(!reader.getLocalName().equals("property")) {
+							throw new IOException("Unexpected element " + reader.getLocalName() + " at line " + reader.getLocation().getLineNumber());
+						}
+						properties.add(new Property(required(reader, "name"), required(reader, "value")));
+						
+						reader.nextTag();
+					}
+					
+					edits.add(new AddEdit(type.getRecordClass(), index, properties));
+					
+					continue;
+				} else if(localName.equals("set")) {
+					edits.add(new SetEdit(index(reader, "index", true), new Property(required(reader, "name"), required(reader, "value"))));
+				} else if(localName.equals("remove")) {
+					edits.add(new RemoveEdit(index(reader, "index", true)));
+				} else if(localName.equals("move")) {
+					edits.add(new MoveEdit(index(reader, "from", true), index(reader, "to", true)));
+				} else {
+					throw new IOException("Unknown edit " + localName + " at line " + reader.getLocation().getLineNumber());
+				}
+				
+				// end element
+				reader.nextTag();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Unable to parse edits: " + e.getMessage());
+		}
+		
+		return new NdefBatchEdits(edits);
+	}
+	
+	private static String required(XMLStreamReader reader, String name) throws IOException {
+		String value = reader.getAttributeValue(null, name);
+		if(value == null) {
+			throw new IOException("Expected attribute " + name + " for " + reader.getLocalName() + " at line " + reader.getLocation().getLineNumber());
+		}
+		return value;
+	}
+
+	private static String index(XMLStreamReader reader, String name, boolean required) throws IOException {
+		String value = required ? required(reader, name) : reader.getAttributeValue(null, name);
+		if(value != null) {
+			try {
+				Integer.parseInt(value);
+			} catch(NumberFormatException e) {
+				throw new IOException("Expected index for " + name + " at line " + reader.getLocation().getLineNumber());
+			}
+		}
+		return value;
+	}
+	
+	private static int toIndex(String value, int size) {
+		int index = Integer.parseInt(value);
+		if(index < 0) {
+			index += size;
+		}
+		if(index < 0 || index >= size) {
+			throw new IllegalArgumentException("Index " + value + " out of bounds for " + size);
+		}
+		return index;
+	}
+	
+	private static void setProperty(Record record, String name, String value) {
+		String setter = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		
+		for(Method method : record.getClass().getMethods()) {
+			if(method.getName().equals(setter) && method.getParameterTypes().length == 1) {
+				Object argument = convert(method.getParameterTypes()[0], value);
+				if(argument != null) {
+					try {
+						method.invoke(record, argument);
+					} catch (IllegalAccessException e) {
+						throw new IllegalArgumentException("Unable to set " + name + " of " + record.getClass().getSimpleName(), e);
+					} catch (InvocationTargetException e) {
+						throw new IllegalArgumentException("Unable to set " + name + " of " + record.getClass().getSimpleName(), e.getCause());
+					}
+					return;
+				}
+			}
+		}
+		throw new IllegalArgumentException("No property " + name + " of supported type in " + record.getClass().getSimpleName());
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object convert(Class<?> type, String value) {
+		if(type == String.class) {
+			return value;
+		} else if(type == int.class || type == Integer.class) {
+			return Integer.valueOf(value);
+		} else if(type == short.class || type == Short.class) {
+			return Short.valueOf(value);
+		} else if(type == long.class || type == Long.class) {
+			return Long.valueOf(value);
+		} else if(type == byte.class || type == Byte.class) {
+			return Byte.valueOf(value);
+		} else if(type == boolean.class || type == Boolean.class) {
+			return Boolean.valueOf(value);
+		} else if(type == Charset.class) {
+			return Charset.forName(value);
+		} else if(type == Locale.class) {
+			String[] parts = value.split("_");
+			if(parts.length == 1) {
+				return new Locale(parts[0]);
+			}
+			return new Locale(parts[0], parts[1]);
+		} else if(type == byte[].class) {
+			return fromHex(value);
+		} else if(type.isEnum()) {
+			return Enum.valueOf((Class<? extends Enum>)type, value);
+		}
+		return null;
+	}
+
+	private static byte[] fromHex(String value) {
+		if(value.length() % 2 != 0) {
+			throw new IllegalArgumentException("Expected even number of hex characters");
+		}
+		byte[] bytes = new byte[value.length() / 2];
+		for(int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte)Integer.parseInt(value.substring(i * 2, i * 2 + 2), 16);
+		}
+		return bytes;
+	}
+
+	private final List<Edit> edits;
+	
+	private NdefBatchEdits(List<Edit> edits) {
+		this.edits = Collections.unmodifiableList(edits);
+	}
+	
+	/**
+	 * 
+	 * Apply the edits to a list of root records.
+	 * 
+	 * @param records the records, modified in place
+	 * @param ndefRecordFactory factory for new records
+	 * @throws IllegalArgumentException if an edit cannot be applied
+	 */
+	
+	public void apply(List<Record> records, NdefRecordFactory ndefRecordFactory) {
+		for(Edit edit : edits) {
+			edit.apply(records, ndefRecordFactory);
+		}
+	}
+	
+	public int size() {
+		return edits.size();
+	}
+}
@@ -30,7 +30,7 @@ import java.security.Security;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.nfc.eclipse.plugin.util.FileDialogUtil;
+import org.nfc.eclipse.plugin.util.MimeTypeRegistry;
 import org.nfctools.ndef.Record;
 import org.nfctools.ndef.auri.AbsoluteUriRecord;
 import org.nfctools.ndef.empty.EmptyRecord;
@@ -74,11 +74,28 @@ public class NdefRecordModelFactory {
 	}
 
 	public static NdefRecordModelParent represent(Record[] records) {
+		return represent(records, false);
+	}
+
+	/**
+	 * 
+	 * Represent records as a tree of nodes.
+	 * 
+	 * @param records the records
+	 * @param lazy create the child nodes of each record on first access
+	 * @return the root node
+	 */
+	
+	public static NdefRecordModelParent represent(Record[] records, boolean lazy) {
 				
 		NdefRecordModelParent ndefRecordModelParent = new NdefRecordModelParent(null);
 
 		for(Record record : records) {
-			ndefRecordModelParent.add(getNode(record, ndefRecordModelParent));
+			if(lazy) {
+				ndefRecordModelParent.add(new NdefRecordModelLazyRecord(record, ndefRecordModelParent));
+			} else {
+				ndefRecordModelParent.add(getNode(record, ndefRecordModelParent));
+			}
 		}
 		
 		return ndefRecordModelParent;
@@ -225,7 +242,7 @@ public class NdefRecordModelFactory {
 
 			// remember content type for file dialogs
 			if(binaryMimeRecord.hasContentType()) {
-				FileDialogUtil.registerMimeType(binaryMimeRecord.getContentType());
+				MimeTypeRegistry.registerMimeType(binaryMimeRecord.getContentType());
 			}
 			
 			return ndefRecordModelRecord;
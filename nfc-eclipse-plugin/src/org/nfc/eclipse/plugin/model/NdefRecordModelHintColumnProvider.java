@@ -28,7 +28,6 @@ package org.nfc.eclipse.plugin.model;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.security.NoSuchProviderException;
 import java.security.Security;
 import java.security.cert.CertificateException;
@@ -36,14 +35,15 @@ import java.security.cert.X509Certificate;
 
 import org.bouncycastle.crypto.RuntimeCryptoException;
 import org.eclipse.jface.viewers.ColumnLabelProvider;
+import org.eclipse.jface.viewers.LabelProviderChangedEvent;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.widgets.Display;
-import org.nfc.eclipse.ndef.signature.SignatureVerifier;
+import org.nfc.eclipse.ndef.signature.SignatureVerificationCache;
+import org.nfc.eclipse.ndef.signature.SignatureVerificationCache.Result;
+import org.nfc.eclipse.plugin.NdefSignatureVerificationJob;
 import org.nfctools.ndef.NdefContext;
 import org.nfctools.ndef.NdefEncoderException;
 import org.nfctools.ndef.NdefMessageEncoder;
-import org.nfctools.ndef.NdefRecord;
-import org.nfctools.ndef.NdefRecordEncoder;
 import org.nfctools.ndef.Record;
 import org.nfctools.ndef.ext.AndroidApplicationRecord;
 import org.nfctools.ndef.mime.MimeRecord;
@@ -52,12 +52,16 @@ import org.nfctools.ndef.wkt.records.SignatureRecord.CertificateFormat;
 import org.nfctools.ndef.wkt.records.SignatureRecord.SignatureType;
 import org.nfctools.ndef.wkt.records.UriRecord;
 
-import android.nfc16.NdefMessage;
-
 public class NdefRecordModelHintColumnProvider extends ColumnLabelProvider {
 
 		private NdefMessageEncoder encoder = NdefContext.getNdefMessageEncoder();
 
+		/** NDEF record header flags for short record and id length present */
+		private static final int FLAG_SR = 0x10;
+		private static final int FLAG_IL = 0x08;
+		
+		private NdefSignatureVerificationJob signatureVerificationJob;
+
 		@Override
 		public String getText(Object element) {
 						
@@ -69,11 +73,7 @@ public class NdefRecordModelHintColumnProvider extends ColumnLabelProvider {
 				// first check problems with encoding
 				if(element instanceof NdefRecordModelRecord) {
 					try {
-						byte[] bytes = encoder.encode(ndefRecordModelNode.getRecord());
-						
-						try {
-							new NdefMessage(bytes);
-						} catch(Exception e) {
+						if(!((NdefRecordModelRecord)element).isAndroidCompatible(encoder)) {
 							return "Android incompatible";
 						}
 					} catch(NdefEncoderException e) {
@@ -187,49 +187,34 @@ public class NdefRecordModelHintColumnProvider extends ColumnLabelProvider {
 										}
 										
 										ByteArrayOutputStream bout = new ByteArrayOutputStream();
-										for(int i = startIndex; i < treeRootIndex; i++) {
-											NdefRecordModelParent recordParent = (NdefRecordModelParent) parent.getChild(i);
-											
-											Record covered = recordParent.getRecord();
-											
-											NdefRecordEncoder ndefRecordEncoder = NdefContext.getNdefRecordEncoder();
-											NdefMessageEncoder ndefEncoder = NdefContext.getNdefMessageEncoder();
-											
-											NdefRecord encode = ndefRecordEncoder.encode(covered, ndefEncoder);
-
-											try {
-												byte[] type = encode.getType();
-												if(type != null) {
-													bout.write(type);
-												}
-												byte[] id = encode.getId();
-												if(id != null) {
-													bout.write(id);
-												}
-												byte[] payload  = encode.getPayload();
-												if(payload != null) {
-													bout.write(payload);
-												}
-											} catch (IOException e) {
-												throw new RuntimeException();
+										try {
+											for(int i = startIndex; i < treeRootIndex; i++) {
+												NdefRecordModelRecord covered = (NdefRecordModelRecord) parent.getChild(i);
+												
+												// type, id and payload from the cached encoding
+												writeCoveredBytes(covered.encode(encoder), bout);
 											}
+										} catch(Exception e) {
+											return "Problem verifying signature";
 										}
-									
-
-										SignatureVerifier signatureVerifier = new SignatureVerifier();
 										
-										Boolean verify;
-										try {
-											verify = signatureVerifier.verify(signatureRecord.getCertificateFormat(), signatureRecord.getCertificates().get(0), signatureRecord.getSignatureType(), signatureRecord.getSignature(), bout.toByteArray());
+										byte[] coveredBytes = bout.toByteArray();
+										byte[] certificate = signatureRecord.getCertificates().get(0);
+										
+										String key = SignatureVerificationCache.getKey(signatureRecord.getCertificateFormat(), certificate, signatureRecord.getSignatureType(), signature, coveredBytes);
+										
+										Result result = SignatureVerificationCache.get(key);
+										if(result == null) {
+											getSignatureVerificationJob().verify(key, signatureRecord.getCertificateFormat(), certificate, signatureRecord.getSignatureType(), signature, coveredBytes, element);
 											
-											if(verify != null) {
-												if(!verify) {
-													return "Signature does not verify";
-												} 
-											} else {
-												return "Verification unsupported";
-											}
-										} catch (Exception e) {
+											return "Verifying...";
+										}
+										
+										if(result == Result.NOT_VERIFIED) {
+											return "Signature does not verify";
+										} else if(result == Result.UNSUPPORTED) {
+											return "Verification unsupported";
+										} else if(result == Result.FAILED) {
 											return "Problem verifying signature";
 										}
 									}										
@@ -245,6 +230,59 @@ public class NdefRecordModelHintColumnProvider extends ColumnLabelProvider {
 			return null;
 		}
 		
+		private NdefSignatureVerificationJob getSignatureVerificationJob() {
+			if(signatureVerificationJob == null) {
+				signatureVerificationJob = new NdefSignatureVerificationJob(Display.getCurrent(), new NdefSignatureVerificationJob.Listener() {
+					
+					@Override
+					public void verified(Object[] elements) {
+						fireLabelProviderChanged(new LabelProviderChangedEvent(NdefRecordModelHintColumnProvider.this, elements));
+					}
+				});
+			}
+			return signatureVerificationJob;
+		}
+		
+		/**
+		 * 
+		 * Write the bytes covered by a signature, i.e. the type, id and payload, of a single encoded record.
+		 * 
+		 * @param record the record encoded as an NDEF message
+		 * @param out the stream to write to
+		 */
+		
+		private static void writeCoveredBytes(byte[] record, ByteArrayOutputStream out) {
+			int header = record[0] & 0xFF;
+			
+			int offset = 1;
+			int typeLength = record[offset++] & 0xFF;
+			
+			int payloadLength;
+			if((header & FLAG_SR) != 0) {
+				payloadLength = record[offset++] & 0xFF;
+			} else {
+				payloadLength = ((record[offset] & 0xFF) << 24) | ((record[offset + 1] & 0xFF) << 16) | ((record[offset + 2] & 0xFF) << 8) | (record[offset + 3] & 0xFF);
+				
+				offset += 4;
+			}
+			
+			int idLength = 0;
+			if((header & FLAG_IL) != 0) {
+				idLength = record[offset++] & 0xFF;
+			}
+			
+			out.write(record, offset, typeLength + idLength + payloadLength);
+		}
+		
+		@Override
+		public void dispose() {
+			super.dispose();
+			
+			if(signatureVerificationJob != null) {
+				signatureVerificationJob.cancel();
+			}
+		}
+		
 		private int getAbbreviateIndex(String uri) {
 			int maxLength = 0;
 			int abbreviateIndex = 0;
@@ -271,11 +309,7 @@ public class NdefRecordModelHintColumnProvider extends ColumnLabelProvider {
 				// first check problems with encoding
 				if(element instanceof NdefRecordModelRecord) {
 					try {
-						byte[] bytes = encoder.encode(ndefRecordModelNode.getRecord());
-						
-						try {
-							new NdefMessage(bytes);
-						} catch(Exception e) {
+						if(!((NdefRecordModelRecord)element).isAndroidCompatible(encoder)) {
 							return new Color(Display.getCurrent(), 0xFF, 0x00, 0x00); 
 						}
 					} catch(NdefEncoderException e) {
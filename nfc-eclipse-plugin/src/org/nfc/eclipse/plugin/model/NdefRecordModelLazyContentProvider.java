@@ -0,0 +1,91 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.model;
+
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+
+/**
+ * 
+ * Tree interface for model, for trees with the SWT.VIRTUAL style. Nodes are only requested when they are 
+ * shown, so that the children of lazy records are only created when expanded or scrolled into view.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefRecordModelLazyContentProvider implements ILazyTreeContentProvider {
+
+	private TreeViewer treeViewer;
+	
+	@Override
+	public void dispose() {
+	}
+
+	@Override
+	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		this.treeViewer = (TreeViewer)viewer;
+	}
+
+	@Override
+	public void updateElement(Object parent, int index) {
+		if(parent instanceof NdefRecordModelParent) {
+			NdefRecordModelParent ndefRecordModelParent = (NdefRecordModelParent)parent;
+			
+			if(index < ndefRecordModelParent.getSize()) {
+				NdefRecordModelNode child = ndefRecordModelParent.getChild(index);
+				
+				treeViewer.replace(parent, index, child);
+				
+				updateChildCount(child, -1);
+			}
+		}
+	}
+
+	@Override
+	public void updateChildCount(Object element, int currentChildCount) {
+		int count = 0;
+		if(element instanceof NdefRecordModelParent) {
+			count = ((NdefRecordModelParent)element).getSize();
+		}
+		
+		if(count != currentChildCount) {
+			treeViewer.setChildCount(element, count);
+		}
+	}
+
+	@Override
+	public Object getParent(Object element) {
+		if (element == null) {
+			return null;
+		}
+		return ((NdefRecordModelNode) element).getParent();
+	}
+
+}
@@ -0,0 +1,173 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.model;
+
+import java.util.List;
+
+import org.nfctools.ndef.Record;
+
+/**
+ * 
+ * Record node which creates its children on first access, so that large messages can be represented 
+ * without building the nodes of records which are never shown.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefRecordModelLazyRecord extends NdefRecordModelRecord {
+
+	/** true until the children have been created */
+	private boolean lazy = true;
+	
+	public NdefRecordModelLazyRecord(Record record, NdefRecordModelParent parent) {
+		super(record, parent);
+	}
+
+	/**
+	 * 
+	 * Create the children, if not already created.
+	 * 
+	 */
+	
+	private void initializeChildren() {
+		if(lazy) {
+			lazy = false;
+			
+			NdefRecordModelRecord node = NdefRecordModelFactory.getNode(getRecord(), getParent());
+			
+			List<NdefRecordModelNode> nodeChildren = node.getChildren();
+			for(NdefRecordModelNode child : nodeChildren) {
+				child.setParent(this);
+			}
+			super.addChildren(nodeChildren);
+		}
+	}
+	
+	public boolean isInitialized() {
+		return !lazy;
+	}
+	
+	@Override
+	public List<NdefRecordModelNode> getChildren() {
+		initializeChildren();
+		
+		return super.getChildren();
+	}
+
+	@Override
+	public boolean hasChildren() {
+		initializeChildren();
+		
+		return super.hasChildren();
+	}
+
+	@Override
+	public boolean add(NdefRecordModelNode e) {
+		initializeChildren();
+		
+		return super.add(e);
+	}
+
+	@Override
+	public int indexOf(NdefRecordModelNode node) {
+		initializeChildren();
+		
+		return super.indexOf(node);
+	}
+
+	@Override
+	public void insert(NdefRecordModelNode node, int index) {
+		initializeChildren();
+		
+		super.insert(node, index);
+	}
+
+	@Override
+	public NdefRecordModelNode getChild(int i) {
+		initializeChildren();
+		
+		return super.getChild(i);
+	}
+
+	@Override
+	public int getSize() {
+		initializeChildren();
+		
+		return super.getSize();
+	}
+
+	@Override
+	public void remove(int index) {
+		initializeChildren();
+		
+		super.remove(index);
+	}
+
+	@Override
+	public void remove(NdefRecordModelNode node) {
+		initializeChildren();
+		
+		super.remove(node);
+	}
+
+	@Override
+	public boolean hasRecordChildren() {
+		initializeChildren();
+		
+		return super.hasRecordChildren();
+	}
+
+	@Override
+	public void removeAllChildren() {
+		lazy = false;
+		
+		super.removeAllChildren();
+	}
+
+	@Override
+	public void setChildren(List<NdefRecordModelNode> children) {
+		lazy = false;
+		
+		super.setChildren(children);
+	}
+
+	@Override
+	public void replace(int index, int count, List<NdefRecordModelNode> nodes) {
+		initializeChildren();
+		
+		super.replace(index, count, nodes);
+	}
+
+	@Override
+	public void addChildren(List<NdefRecordModelNode> children) {
+		initializeChildren();
+		
+		super.addChildren(children);
+	}
+}
@@ -30,6 +30,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -51,16 +52,16 @@ import org.eclipse.ui.PlatformUI;
 import org.nfc.eclipse.plugin.Activator;
 import org.nfc.eclipse.plugin.NdefEditorPart;
 import org.nfc.eclipse.plugin.NdefMultiPageEditor;
+import org.nfc.eclipse.plugin.NdefTerminalJob;
 import org.nfc.eclipse.plugin.model.editing.DefaultRecordEditingSupport;
 import org.nfc.eclipse.plugin.model.editing.ExternalTypeRecordEditingSupport;
 import org.nfc.eclipse.plugin.model.editing.MimeRecordEditingSupport;
 import org.nfc.eclipse.plugin.model.editing.UnknownRecordEditingSupport;
 import org.nfc.eclipse.plugin.operation.NdefModelOperation;
+import org.nfc.eclipse.plugin.terminal.NdefProvisioning;
 import org.nfc.eclipse.plugin.terminal.NdefTerminalListener;
 import org.nfc.eclipse.plugin.terminal.NdefTerminalWrapper;
 import org.nfc.eclipse.plugin.util.FileDialogUtil;
-import org.nfctools.ndef.NdefContext;
-import org.nfctools.ndef.NdefMessageEncoder;
 import org.nfctools.ndef.NdefOperations;
 import org.nfctools.ndef.Record;
 import org.nfctools.ndef.auri.AbsoluteUriRecord;
@@ -229,11 +230,48 @@ public class NdefRecordModelMenuListener implements IMenuListener, ISelectionCha
 	private ReadOnlyTerminal readOnlyTerminal = new ReadOnlyTerminal();
 	private DisableTerminal disableTerminals = new DisableTerminal();
 	private EnableTerminal enableTerminals = new EnableTerminal();
+	private StartProvisioningTerminal startProvisioning = new StartProvisioningTerminal();
+	private StopProvisioningTerminal stopProvisioning = new StopProvisioningTerminal();
+	private ProvisioningResultsTerminal provisioningResults = new ProvisioningResultsTerminal();
+	
+	/** maximum number of tags listed in the provisioning results dialog */
+	private static final int MAX_PROVISIONING_RESULTS = 20;
 	
 	// mime content
 	private SaveContentAction saveContent;
 	private ReloadContentAction reloadContent;
 
+	/**
+	 * 
+	 * Shows the outcome of a tag job in the status line.
+	 * 
+	 */
+	
+	private class TerminalJobStatus implements NdefTerminalJob.Listener {
+		
+		private final String label;
+
+		public TerminalJobStatus(String label) {
+			this.label = label;
+		}
+
+		@Override
+		public void completed(NdefTerminalJob job) {
+			if(job.getException() == null) {
+				editorPart.setStatus(label + " successful (" + job.getDuration() + " ms)");
+			} else {
+				editorPart.setStatus(label + " failed: " + job.getException().toString());
+			}
+		}
+	}
+	
+	private void schedule(NdefTerminalJob.Operation operation, NdefOperations ndefOperations, byte[] message, NdefTerminalJob.Listener listener) {
+		NdefTerminalJob job = new NdefTerminalJob(operation, ndefOperations, message, Display.getCurrent(), listener);
+		
+		job.setUser(true);
+		job.schedule();
+	}
+
 	private class WriteTerminal extends Action {
 		
 		public WriteTerminal() {	
@@ -244,22 +282,20 @@ public class NdefRecordModelMenuListener implements IMenuListener, ISelectionCha
 		public void run() {
 			Activator.info("Export to terminal");
 			
-			List<Record> ndefContent = ndefMultiPageEditor.getNdefRecords();
-			
 			NdefOperations ndefOperations = NdefTerminalWrapper.getNdefOperations();
 
 			if(ndefOperations != null) {
-
+				// encode now, so that the job writes the content as it is at this point
+				byte[] message;
 				try {
-					if(!ndefOperations.isFormatted()) {
-						ndefOperations.format(ndefContent.toArray(new Record[ndefContent.size()]));
-					} else {
-						ndefOperations.writeNdefMessage(ndefContent.toArray(new Record[ndefContent.size()]));
-					}
-					editorPart.setStatus("Write successful");
+					message = ndefMultiPageEditor.getNdefMessage();
 				} catch(Exception e) {
 					editorPart.setStatus("Write failed: " + e.toString());
+					
+					return;
 				}
+				
+				schedule(NdefTerminalJob.Operation.WRITE, ndefOperations, message, new TerminalJobStatus("Write"));
 			} else {
 				editorPart.setStatus("Operation not possible");
 			}
@@ -279,19 +315,15 @@ public class NdefRecordModelMenuListener implements IMenuListener, ISelectionCha
 			NdefOperations ndefOperations = NdefTerminalWrapper.getNdefOperations();
 			
 			if(ndefOperations != null) {
-				try {
-					List<Record> readNdefMessage;
-					if(ndefOperations.isFormatted()) {
-						readNdefMessage = ndefOperations.readNdefMessage();
-					} else {
-						readNdefMessage = new ArrayList<Record>();
+				schedule(NdefTerminalJob.Operation.READ, ndefOperations, null, new TerminalJobStatus("Read") {
+					@Override
+					public void completed(NdefTerminalJob job) {
+						if(job.getException() == null) {
+							ndefMultiPageEditor.setNdefContent(job.getReadRecords());
+						}
+						super.completed(job);
 					}
-		
-					ndefMultiPageEditor.setNdefContent(readNdefMessage);
-					editorPart.setStatus("Read successful");
-				} catch(Exception e) {
-					editorPart.setStatus("Read failed: " + e.toString());
-				}
+				});
 			} else {
 				editorPart.setStatus("Operation not possible");
 			}
@@ -345,17 +377,12 @@ public class NdefRecordModelMenuListener implements IMenuListener, ISelectionCha
 				NdefOperations ndefOperations = NdefTerminalWrapper.getNdefOperations();
 
 				if(ndefOperations != null) {
-					List<Record> ndefContent = ndefMultiPageEditor.getNdefRecords();
-
 					try {
-						if(!ndefOperations.isFormatted()) {
-							ndefOperations.format(ndefContent.toArray(new Record[ndefContent.size()]));
-						} else {
-							ndefOperations.writeNdefMessage(ndefContent.toArray(new Record[ndefContent.size()]));
-						}
-						editorPart.setStatus("Auto-write successful");
+						byte[] message = ndefMultiPageEditor.getNdefMessage();
+						
+						schedule(NdefTerminalJob.Operation.WRITE, ndefOperations, message, new TerminalJobStatus("Auto-write"));
 					} catch(Exception e) {
-						editorPart.setStatus("Auto-write failed: " + e.toString());
+						editorPart.setStatus("Auto-write not possible.");
 					}
 				}					
 			} else {
@@ -396,13 +423,7 @@ public class NdefRecordModelMenuListener implements IMenuListener, ISelectionCha
 			NdefOperations ndefOperations = NdefTerminalWrapper.getNdefOperations();
 
 			if(ndefOperations != null) {
-				try {
-					ndefOperations.format();
-					
-					editorPart.setStatus("Format successful");
-				} catch(Exception e) {
-					editorPart.setStatus("Format failed: " + e.toString());
-				}
+				schedule(NdefTerminalJob.Operation.FORMAT, ndefOperations, null, new TerminalJobStatus("Format"));
 			} else {
 				editorPart.setStatus("Operation not possible");
 			}
@@ -424,13 +445,7 @@ public class NdefRecordModelMenuListener implements IMenuListener, ISelectionCha
 			NdefOperations ndefOperations = NdefTerminalWrapper.getNdefOperations();
 
 			if(ndefOperations != null) {
-				try {
-					ndefOperations.makeReadOnly();
-					
-					editorPart.setStatus("Set read-only successful");
-				} catch(Exception e) {
-					editorPart.setStatus("Set read-only failed: " + e.toString());
-				}
+				schedule(NdefTerminalJob.Operation.READ_ONLY, ndefOperations, null, new TerminalJobStatus("Set read-only"));
 			} else {
 				editorPart.setStatus("Operation not possible");
 			}
@@ -438,6 +453,152 @@ public class NdefRecordModelMenuListener implements IMenuListener, ISelectionCha
 		
 	}
 	
+	/**
+	 * 
+	 * Start bulk provisioning from a text file with one URI per line; each presented tag gets the next URI.
+	 * 
+	 */
+	
+	private class StartProvisioningTerminal extends Action {
+		
+		public StartProvisioningTerminal() {
+			super("Provision from file...");
+		}
+		
+		@Override
+		public void run() {
+			Activator.info("Start provisioning");
+			
+			FileDialog fileDialog = new FileDialog(treeViewer.getTree().getShell(), SWT.OPEN);
+			fileDialog.setText("Provision one URI per line");
+			fileDialog.setFilterExtensions(new String[]{"*.txt", "*.*"});
+			
+			String fileString = fileDialog.open();
+			if(fileString == null) {
+				return;
+			}
+			
+			byte[] content = DefaultRecordEditingSupport.load(fileString);
+			if(content == null) {
+				return;
+			}
+			
+			List<String> uris = new ArrayList<String>();
+			try {
+				for(String line : new String(content, "UTF-8").split("\\r?\\n")) {
+					line = line.trim();
+					if(line.length() > 0) {
+						uris.add(line);
+					}
+				}
+			} catch(UnsupportedEncodingException e) {
+				throw new RuntimeException(e);
+			}
+			
+			if(uris.isEmpty()) {
+				MessageDialog.openError(treeViewer.getTree().getShell(), "Error", "No URIs in file " + fileString);
+				
+				return;
+			}
+			
+			NdefProvisioning provisioning;
+			try {
+				provisioning = NdefProvisioning.fromUris(uris);
+			} catch(IllegalArgumentException e) {
+				MessageDialog.openError(treeViewer.getTree().getShell(), "Error", e.getMessage());
+				
+				return;
+			}
+			
+			NdefTerminalWrapper.setProvisioning(provisioning);
+			
+			editorPart.setStatus("Provisioning " + provisioning.getTotal() + " tags, present the tags to the reader.");
+		}
+	}
+	
+	private class StopProvisioningTerminal extends Action {
+		
+		public StopProvisioningTerminal() {
+			super("Stop provisioning");
+		}
+		
+		@Override
+		public void run() {
+			Activator.info("Stop provisioning");
+			
+			NdefProvisioning provisioning = NdefTerminalWrapper.getProvisioning();
+			
+			NdefTerminalWrapper.setProvisioning(null);
+			
+			if(provisioning != null) {
+				MessageDialog.openInformation(treeViewer.getTree().getShell(), "Provisioning stopped", getSummary(provisioning));
+			}
+		}
+	}
+	
+	private class ProvisioningResultsTerminal extends Action {
+		
+		public ProvisioningResultsTerminal() {
+			super("Provisioning results");
+		}
+		
+		@Override
+		public void run() {
+			NdefProvisioning provisioning = NdefTerminalWrapper.getProvisioning();
+			
+			if(provisioning != null) {
+				MessageDialog.openInformation(treeViewer.getTree().getShell(), "Provisioning results", getSummary(provisioning));
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * Describe the progress and the result per tag of a provisioning run.
+	 * 
+	 * @param provisioning the run
+	 * @return the description
+	 */
+	
+	private static String getSummary(NdefProvisioning provisioning) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(provisioning.getWritten() + " of " + provisioning.getTotal() + " tags written, " + provisioning.getRemaining() + " remaining.\n");
+		builder.append(provisioning.getFailed() + " failed writes, " + provisioning.getRejected() + " tags rejected, " + Math.round(provisioning.getTagsPerMinute()) + " tags per minute.\n");
+		
+		List<NdefProvisioning.Message> abandoned = provisioning.getAbandoned();
+		if(!abandoned.isEmpty()) {
+			builder.append(abandoned.size() + " messages abandoned after failing on " + provisioning.getMaxMessageFailures() + " tags:");
+			for(NdefProvisioning.Message message : abandoned) {
+				builder.append(" " + message.getIndex());
+			}
+			builder.append('\n');
+		}
+		
+		List<NdefProvisioning.Result> results = provisioning.getResults();
+		if(!results.isEmpty()) {
+			builder.append('\n');
+			
+			// the results for the first tags are enough for a dialog
+			int count = Math.min(results.size(), MAX_PROVISIONING_RESULTS);
+			for(int i = 0; i < count; i++) {
+				NdefProvisioning.Result result = results.get(i);
+				
+				builder.append("Tag " + result.getTagId() + ": message " + result.getIndex());
+				if(result.getException() == null) {
+					builder.append(" written");
+				} else {
+					builder.append(" failed (attempt " + result.getAttempt() + "): " + result.getException().toString());
+				}
+				builder.append('\n');
+			}
+			
+			if(count < results.size()) {
+				builder.append("and " + (results.size() - count) + " more tags.\n");
+			}
+		}
+		return builder.toString();
+	}
+	
 	private class InsertSiblingAction extends Action {
 
 		private Class<? extends Record> recordType;
@@ -1158,10 +1319,8 @@ public class NdefRecordModelMenuListener implements IMenuListener, ISelectionCha
 				        	if(ndefOperations.isWritable()) {
 		
 				        		// add write option IF message can in fact be written
-				        		NdefMessageEncoder ndefMessageEncoder = NdefContext.getNdefMessageEncoder();
-				        		
 				        		try {
-				        			ndefMessageEncoder.encode(ndefMultiPageEditor.getNdefRecords());
+				        			ndefMultiPageEditor.getNdefMessage();
 				        			
 				        			writeTerminal.setEnabled(true);
 				        		} catch(Exception e) {
@@ -1217,6 +1376,14 @@ public class NdefRecordModelMenuListener implements IMenuListener, ISelectionCha
 				        terminalMenuManager.add(new Separator());
 				        terminalMenuManager.add(readOnlyTerminal);
 				        
+				        terminalMenuManager.add(new Separator());
+				        if(NdefTerminalWrapper.getProvisioning() != null) {
+				        	terminalMenuManager.add(provisioningResults);
+				        	terminalMenuManager.add(stopProvisioning);
+				        } else {
+				        	terminalMenuManager.add(startProvisioning);
+				        }
+				        
 				        terminalMenuManager.add(new Separator());
 				        terminalMenuManager.add(disableTerminals);
 
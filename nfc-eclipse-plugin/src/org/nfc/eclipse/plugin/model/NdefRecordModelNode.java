@@ -150,6 +150,27 @@ public class NdefRecordModelNode implements Cloneable {
 		return -1;
 	}
 
+	/**
+	 * 
+	 * Clear the cached encoding (and size and hints derived from it) of the record this node belongs to, 
+	 * and of all records containing that record.
+	 * 
+	 */
+	
+	public void invalidate() {
+		NdefRecordModelNode p = this;
+		
+		while(p != null) {
+			if(p instanceof NdefRecordModelRecord) {
+				NdefRecordModelRecord ndefRecordModelRecord = (NdefRecordModelRecord)p;
+				
+				ndefRecordModelRecord.clearEncoded();
+			}
+			
+			p = p.getParent();
+		}
+	}
+
 	public NdefRecordModelRecord getRecordNode() {
 		NdefRecordModelNode p = this;
 		
@@ -27,12 +27,17 @@
 package org.nfc.eclipse.plugin.model;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class NdefRecordModelParent extends NdefRecordModelNode {
 	
 	protected List<NdefRecordModelNode> children;
 	
+	/** position of each child by reference, kept up to date by the methods of this class; null if not built yet */
+	private Map<NdefRecordModelNode, Integer> childIndexes;
+	
 	public NdefRecordModelParent(List<NdefRecordModelNode> children, NdefRecordModelParent parent) {
 		super(parent);
 		this.children = children;
@@ -55,20 +60,69 @@ public class NdefRecordModelParent extends NdefRecordModelNode {
 	}
 
 	public boolean add(NdefRecordModelNode e) {
-		return children.add(e);
+		boolean added = children.add(e);
+		
+		if(childIndexes != null) {
+			childIndexes.put(e, children.size() - 1);
+		}
+		
+		return added;
 	}
 
 	public int indexOf(NdefRecordModelNode node) {
-		for(int i = 0; i < children.size(); i++) { // do not use indexOf list, we do not want to check using equals, but using reference
-			if(node == children.get(i)) {
+		// do not use indexOf list, we do not want to check using equals, but using reference
+		Map<NdefRecordModelNode, Integer> childIndexes = getChildIndexes();
+		
+		Integer index = childIndexes.get(node);
+		if(index != null) {
+			int i = index.intValue();
+			if(i < children.size() && children.get(i) == node) {
 				return i;
 			}
+		} else if(childIndexes.size() == children.size()) {
+			return -1;
+		}
+		
+		// the children list was modified directly
+		this.childIndexes = null;
+		
+		index = getChildIndexes().get(node);
+		if(index != null) {
+			return index.intValue();
 		}
 		return -1;
 	}
+	
+	private Map<NdefRecordModelNode, Integer> getChildIndexes() {
+		if(childIndexes == null) {
+			childIndexes = new IdentityHashMap<NdefRecordModelNode, Integer>(children.size());
+			
+			for(int i = 0; i < children.size(); i++) {
+				childIndexes.put(children.get(i), i);
+			}
+		}
+		return childIndexes;
+	}
+	
+	/**
+	 * 
+	 * Update the positions of the children from an index and onwards, i.e. after these have been shifted.
+	 * 
+	 * @param index first child to update
+	 */
+	
+	private void updateChildIndexes(int index) {
+		if(childIndexes != null) {
+			for(int i = index; i < children.size(); i++) {
+				childIndexes.put(children.get(i), i);
+			}
+		}
+	}
 
 	public void insert(NdefRecordModelNode node, int index) {
 		children.add(index, node);
+		
+		updateChildIndexes(index);
 	}
 
 	public NdefRecordModelNode getChild(int i) {
@@ -80,16 +134,19 @@ public class NdefRecordModelParent extends NdefRecordModelNode {
 	}
 
 	public void remove(int index) {
-		children.remove(index);
+		NdefRecordModelNode node = children.remove(index);
+		
+		if(childIndexes != null) {
+			childIndexes.remove(node);
+		
+			updateChildIndexes(index);
+		}
 	}
 
 	public void remove(NdefRecordModelNode node) {
-		for(int i = 0; i < children.size(); i++) { // do not use indexOf list, we do not want to check using equals, but using reference
-			if(node == children.get(i)) {
-				children.remove(i);
-				
-				break;
-			}
+		int index = indexOf(node);
+		if(index != -1) {
+			remove(index);
 		}
 	}
 
@@ -104,14 +161,45 @@ public class NdefRecordModelParent extends NdefRecordModelNode {
 
 	public void removeAllChildren() {
 		children.clear();
+		
+		childIndexes = null;
 	}
 
 	public void setChildren(List<NdefRecordModelNode> children) {
 		this.children = children;
+		
+		childIndexes = null;
+	}
+	
+	/**
+	 * 
+	 * Replace a range of children.
+	 * 
+	 * @param index index of the first child to replace
+	 * @param count number of children to replace
+	 * @param nodes the replacement children
+	 */
+	
+	public void replace(int index, int count, List<NdefRecordModelNode> nodes) {
+		List<NdefRecordModelNode> range = children.subList(index, index + count);
+		if(childIndexes != null) {
+			for(NdefRecordModelNode node : range) {
+				childIndexes.remove(node);
+			}
+		}
+		range.clear();
+		
+		children.addAll(index, nodes);
+		
+		updateChildIndexes(index);
 	}
 	
 	public void addChildren(List<NdefRecordModelNode> children) {
+		int index = this.children.size();
+		
 		this.children.addAll(children);
+		
+		updateChildIndexes(index);
 	}
 
 }
@@ -29,12 +29,24 @@ package org.nfc.eclipse.plugin.model;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.nfctools.ndef.NdefMessageEncoder;
 import org.nfctools.ndef.Record;
 
+import android.nfc16.NdefMessage;
+
 public class NdefRecordModelRecord extends NdefRecordModelParent {
 	
 	private Record record;
 	private String name;
+	
+	/** Record encoded as a single-record NDEF message, or null if not (yet) encoded */
+	private byte[] encoded;
+	
+	/** Problem encoding the record, or null if encoded or not (yet) encoded */
+	private RuntimeException encoderException;
+	
+	/** Whether the encoded record can be parsed on Android, or null if not (yet) checked */
+	private Boolean androidCompatible;
 
 	public NdefRecordModelRecord(Record record, List<NdefRecordModelNode> children, NdefRecordModelParent parent) {
 		super(children, parent);
@@ -50,6 +62,79 @@ public class NdefRecordModelRecord extends NdefRecordModelParent {
 		return record;
 	}
 
+	public byte[] getEncoded() {
+		return encoded;
+	}
+
+	public void setEncoded(byte[] encoded) {
+		this.encoded = encoded;
+	}
+	
+	public boolean hasEncoded() {
+		return encoded != null;
+	}
+	
+	/**
+	 * 
+	 * Encode the record as a single-record NDEF message. The result, or the exception, is kept until the 
+	 * record is invalidated, so that the label providers and the editor share a single encoding per change.
+	 * 
+	 * @param encoder the encoder
+	 * @return the encoded record
+	 */
+	
+	public byte[] encode(NdefMessageEncoder encoder) {
+		if(encoded == null) {
+			if(encoderException != null) {
+				throw encoderException;
+			}
+			try {
+				encoded = encoder.encode(record);
+			} catch(RuntimeException e) {
+				encoderException = e;
+				
+				throw e;
+			}
+		}
+		return encoded;
+	}
+
+	/**
+	 * 
+	 * Check whether the encoded record can be parsed on Android.
+	 * 
+	 * @param encoder the encoder
+	 * @return true if compatible
+	 * @throws RuntimeException if the record cannot be encoded
+	 */
+	
+	public boolean isAndroidCompatible(NdefMessageEncoder encoder) {
+		if(androidCompatible == null) {
+			byte[] bytes = encode(encoder);
+			
+			try {
+				new NdefMessage(bytes);
+				
+				androidCompatible = Boolean.TRUE;
+			} catch(Exception e) {
+				androidCompatible = Boolean.FALSE;
+			}
+		}
+		return androidCompatible.booleanValue();
+	}
+	
+	/**
+	 * 
+	 * Clear the encoding and the results derived from it.
+	 * 
+	 */
+	
+	public void clearEncoded() {
+		this.encoded = null;
+		this.encoderException = null;
+		this.androidCompatible = null;
+	}
+
 	@Override
 	public String toString() {
 		return name;
@@ -41,7 +41,7 @@ public class NdefRecordModelSizeColumnLabelProvider extends ColumnLabelProvider
 			NdefRecordModelRecord ndefRecordModelRecord = (NdefRecordModelRecord)element;
 			
 			try {
-				byte[] encodeSingle = ndefMessageEncoder.encode(ndefRecordModelRecord.getRecord());
+				byte[] encodeSingle = ndefRecordModelRecord.encode(ndefMessageEncoder);
 				
 				return Integer.toString(encodeSingle.length);
 			} catch(Exception e) {
@@ -142,6 +142,24 @@ public class NdefRecordType {
 		return ndefRecordType;
 	}
 	
+	/**
+	 * 
+	 * Look up a record type by class name, with or without package.
+	 * 
+	 * @param name class name
+	 * @return the type, or null if unknown
+	 */
+	
+	public static NdefRecordType getType(String name) {
+		for(NdefRecordType type : records.values()) {
+			Class<? extends Record> c = type.getRecordClass();
+			if(c.getName().equals(name) || c.getSimpleName().equals(name)) {
+				return type;
+			}
+		}
+		return null;
+	}
+	
 	private Class<? extends Record> c;
 	private String label;
 	
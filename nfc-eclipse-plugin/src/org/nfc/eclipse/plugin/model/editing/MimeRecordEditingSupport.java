@@ -38,7 +38,7 @@ import org.nfc.eclipse.plugin.model.NdefRecordModelProperty;
 import org.nfc.eclipse.plugin.operation.DefaultNdefModelPropertyOperation;
 import org.nfc.eclipse.plugin.operation.NdefModelOperation;
 import org.nfc.eclipse.plugin.operation.NdefModelOperationList;
-import org.nfc.eclipse.plugin.util.FileDialogUtil;
+import org.nfc.eclipse.plugin.util.MimeTypeRegistry;
 import org.nfctools.ndef.mime.BinaryMimeRecord;
 import org.nfctools.ndef.mime.MimeRecord;
 
@@ -98,7 +98,7 @@ public class MimeRecordEditingSupport extends DefaultRecordEditingSupport {
 			
 			int parentIndex = node.getParentIndex();
 			if(parentIndex == 0) {
-				FileDialogUtil.registerMimeType(stringValue);
+				MimeTypeRegistry.registerMimeType(stringValue);
 				
 				if(!stringValue.equals(mimeRecord.getContentType())) {
 					return new DefaultNdefModelPropertyOperation<String, MimeRecord>(mimeRecord, (NdefRecordModelProperty)node, mimeRecord.getContentType(), stringValue) {
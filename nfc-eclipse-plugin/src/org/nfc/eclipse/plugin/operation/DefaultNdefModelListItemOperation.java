@@ -30,7 +30,7 @@ import org.nfc.eclipse.plugin.model.NdefRecordModelPropertyListItem;
 import org.nfctools.ndef.Record;
 
 
-public class DefaultNdefModelListItemOperation<V, R extends Record> implements NdefModelOperation {
+public class DefaultNdefModelListItemOperation<V, R extends Record> implements NdefModelChangeOperation, NdefModelSizedOperation, NdefModelMergeableOperation {
 
 	protected NdefRecordModelPropertyListItem ndefRecordModelPropertyListItem;
 
@@ -74,4 +74,41 @@ public class DefaultNdefModelListItemOperation<V, R extends Record> implements N
 		return object.toString();
 	}
 	
+
+	@Override
+	public void getChanges(NdefModelChange change, boolean revoked) {
+		change.refresh(ndefRecordModelPropertyListItem.getRecordNode());
+	}
+
+	@Override
+	public boolean canMerge(NdefModelOperation operation) {
+		if(operation.getClass() == getClass()) {
+			DefaultNdefModelListItemOperation<?, ?> listItemOperation = (DefaultNdefModelListItemOperation<?, ?>)operation;
+			
+			return listItemOperation.ndefRecordModelPropertyListItem == ndefRecordModelPropertyListItem && listItemOperation.record == record;
+		}
+		return false;
+	}
+
+	/**
+	 * 
+	 * Only plain value edits are collapsed, subclasses might modify other properties depending on the previous state.
+	 * 
+	 */
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public NdefModelMergeableOperation collapse(NdefModelOperation operation) {
+		if(getClass() == DefaultNdefModelListItemOperation.class && canMerge(operation)) {
+			DefaultNdefModelListItemOperation<V, R> listItemOperation = (DefaultNdefModelListItemOperation<V, R>)operation;
+			
+			return new DefaultNdefModelListItemOperation<V, R>(record, ndefRecordModelPropertyListItem, previous, listItemOperation.next);
+		}
+		return null;
+	}
+
+	@Override
+	public long getRetainedSize() {
+		return NdefModelOperationSize.OBJECT_SIZE + NdefModelOperationSize.getSize(previous) + NdefModelOperationSize.getSize(next);
+	}
 }
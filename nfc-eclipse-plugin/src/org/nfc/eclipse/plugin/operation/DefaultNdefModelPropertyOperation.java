@@ -30,7 +30,7 @@ import org.nfc.eclipse.plugin.model.NdefRecordModelProperty;
 import org.nfctools.ndef.Record;
 
 
-public class DefaultNdefModelPropertyOperation<V, R extends Record> implements NdefModelOperation {
+public class DefaultNdefModelPropertyOperation<V, R extends Record> implements NdefModelChangeOperation, NdefModelSizedOperation, NdefModelMergeableOperation {
 
 	protected NdefRecordModelProperty ndefRecordModelProperty;
 
@@ -72,4 +72,53 @@ public class DefaultNdefModelPropertyOperation<V, R extends Record> implements N
 	
 	
 	
+
+	/**
+	 * 
+	 * Report the whole record as changed, subclasses might also modify the other properties of the record.
+	 * 
+	 */
+
+	@Override
+	public void getChanges(NdefModelChange change, boolean revoked) {
+		change.refresh(ndefRecordModelProperty.getRecordNode());
+	}
+
+	/**
+	 * 
+	 * Consecutive edits of the same property by the same kind of operation can be merged.
+	 * 
+	 */
+	
+	@Override
+	public boolean canMerge(NdefModelOperation operation) {
+		if(operation.getClass() == getClass()) {
+			DefaultNdefModelPropertyOperation<?, ?> propertyOperation = (DefaultNdefModelPropertyOperation<?, ?>)operation;
+			
+			return propertyOperation.ndefRecordModelProperty == ndefRecordModelProperty && propertyOperation.record == record;
+		}
+		return false;
+	}
+
+	/**
+	 * 
+	 * Only plain value edits are collapsed, subclasses might modify other properties depending on the previous state.
+	 * 
+	 */
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public NdefModelMergeableOperation collapse(NdefModelOperation operation) {
+		if(getClass() == DefaultNdefModelPropertyOperation.class && canMerge(operation)) {
+			DefaultNdefModelPropertyOperation<V, R> propertyOperation = (DefaultNdefModelPropertyOperation<V, R>)operation;
+			
+			return new DefaultNdefModelPropertyOperation<V, R>(record, ndefRecordModelProperty, previous, propertyOperation.next);
+		}
+		return null;
+	}
+
+	@Override
+	public long getRetainedSize() {
+		return NdefModelOperationSize.OBJECT_SIZE + NdefModelOperationSize.getSize(previous) + NdefModelOperationSize.getSize(next);
+	}
 }
@@ -33,7 +33,7 @@ import org.nfc.eclipse.plugin.model.NdefRecordModelRecord;
 import org.nfctools.ndef.Record;
 
 
-public class DefaultNdefRecordModelParentPropertyOperation<V extends Record, R extends Record> implements NdefModelOperation {
+public class DefaultNdefRecordModelParentPropertyOperation<V extends Record, R extends Record> implements NdefModelChangeOperation, NdefModelSizedOperation {
 
 	protected NdefRecordModelParentProperty ndefRecordModelParentProperty;
 
@@ -91,4 +91,14 @@ public class DefaultNdefRecordModelParentPropertyOperation<V extends Record, R e
 		
 	}
 	
+
+	@Override
+	public void getChanges(NdefModelChange change, boolean revoked) {
+		change.refresh(ndefRecordModelParentProperty);
+	}
+
+	@Override
+	public long getRetainedSize() {
+		return NdefModelOperationSize.OBJECT_SIZE + NdefModelOperationSize.getSize(previousNode) + NdefModelOperationSize.getSize(nextNode);
+	}
 }
@@ -33,7 +33,7 @@ import org.nfctools.ndef.wkt.handover.records.AlternativeCarrierRecord;
 import org.nfctools.ndef.wkt.records.SignatureRecord;
 
 
-public class NdefModelAddListItemOperation implements NdefModelOperation {
+public class NdefModelAddListItemOperation implements NdefModelChangeOperation {
 
 	private NdefRecordModelPropertyList parent;
 	private NdefRecordModelPropertyListItem childNode;
@@ -89,5 +89,12 @@ public class NdefModelAddListItemOperation implements NdefModelOperation {
 		parent.remove(index);
 	}
 
-
+	@Override
+	public void getChanges(NdefModelChange change, boolean revoked) {
+		if(revoked) {
+			change.remove(parent, childNode);
+		} else {
+			change.add(childNode);
+		}
+	}
 }
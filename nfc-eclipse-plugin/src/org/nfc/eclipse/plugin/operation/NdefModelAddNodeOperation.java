@@ -34,7 +34,7 @@ import org.nfc.eclipse.plugin.model.NdefRecordModelRecord;
 import org.nfctools.ndef.Record;
 
 
-public class NdefModelAddNodeOperation implements NdefModelOperation {
+public class NdefModelAddNodeOperation implements NdefModelChangeOperation, NdefModelSizedOperation {
 
 	private NdefRecordModelParent parent;
 	private NdefRecordModelNode child;
@@ -86,4 +86,17 @@ public class NdefModelAddNodeOperation implements NdefModelOperation {
 		
 	}
 
+	@Override
+	public void getChanges(NdefModelChange change, boolean revoked) {
+		if(revoked) {
+			change.remove(parent, child);
+		} else {
+			change.add(child);
+		}
+	}
+
+	@Override
+	public long getRetainedSize() {
+		return NdefModelOperationSize.OBJECT_SIZE + NdefModelOperationSize.getSize(child);
+	}
 }
@@ -0,0 +1,125 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.operation;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.nfc.eclipse.plugin.model.NdefRecordModelNode;
+import org.nfc.eclipse.plugin.model.NdefRecordModelParent;
+
+/**
+ * 
+ * Nodes affected by executing or revoking an operation, so that views can update just those nodes.
+ * 
+ * Added nodes are in the model (at their current index), removed nodes are not. Refreshed nodes have changed 
+ * together with their children. Updated nodes are the parents of all these nodes; their children are the same 
+ * but their labels (i.e. size) might have changed. Each node is reported once, even if several operations 
+ * (i.e. merged edits) affect it.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefModelChange {
+
+	/**
+	 * 
+	 * Get the changes of an operation. 
+	 * 
+	 * @param operation the operation
+	 * @param revoked true if the operation was revoked, false if executed
+	 * @return the changes, or null if the operation does not report its changes
+	 */
+	
+	public static NdefModelChange getChange(NdefModelOperation operation, boolean revoked) {
+		if(operation instanceof NdefModelOperationStep) {
+			return ((NdefModelOperationStep)operation).getChange();
+		} else if(operation instanceof NdefModelChangeOperation) {
+			NdefModelChange change = new NdefModelChange();
+			
+			((NdefModelChangeOperation)operation).getChanges(change, revoked);
+			
+			return change;
+		}
+		return null;
+	}
+	
+	private Set<NdefRecordModelNode> added = new LinkedHashSet<NdefRecordModelNode>();
+	private Set<NdefRecordModelNode> removed = new LinkedHashSet<NdefRecordModelNode>();
+	private Set<NdefRecordModelNode> refreshed = new LinkedHashSet<NdefRecordModelNode>();
+	private Set<NdefRecordModelNode> updated = new LinkedHashSet<NdefRecordModelNode>();
+	
+	public void add(NdefRecordModelNode node) {
+		added.add(node);
+		
+		update(node.getParent());
+	}
+
+	public void remove(NdefRecordModelParent parent, NdefRecordModelNode node) {
+		removed.add(node);
+		
+		update(parent);
+	}
+
+	public void refresh(NdefRecordModelNode node) {
+		refreshed.add(node);
+		
+		update(node.getParent());
+	}
+	
+	private void update(NdefRecordModelNode node) {
+		// all but the root node
+		while(node != null && node.hasParent()) {
+			updated.add(node);
+			
+			node = node.getParent();
+		}
+	}
+
+	public Set<NdefRecordModelNode> getAdded() {
+		return Collections.unmodifiableSet(added);
+	}
+
+	public Set<NdefRecordModelNode> getRemoved() {
+		return Collections.unmodifiableSet(removed);
+	}
+
+	public Set<NdefRecordModelNode> getRefreshed() {
+		return Collections.unmodifiableSet(refreshed);
+	}
+
+	public Set<NdefRecordModelNode> getUpdated() {
+		return Collections.unmodifiableSet(updated);
+	}
+	
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && refreshed.isEmpty();
+	}
+}
@@ -0,0 +1,63 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.operation;
+
+/**
+ * 
+ * Operation which can be merged with a following operation into a single undo step, i.e. 
+ * consecutive edits of the same property.
+ * 
+ * @author thomas
+ *
+ */
+
+public interface NdefModelMergeableOperation extends NdefModelOperation {
+
+	/**
+	 * 
+	 * Check whether an operation executed right after this operation can be merged with it. 
+	 * The merged operation keeps the operations which cannot be collapsed, executing them in order and revoking them in reverse order.
+	 * 
+	 * @param operation the next operation
+	 * @return true if the operations can be merged
+	 */
+	
+	boolean canMerge(NdefModelOperation operation);
+	
+	/**
+	 * 
+	 * Collapse this operation and a mergeable next operation into one, which reverts to the previous value of this 
+	 * operation and sets the next value of the next operation. Only possible for operations which set an absolute value 
+	 * without other side effects.
+	 * 
+	 * @param operation the next operation
+	 * @return the collapsed operation, or null if both operations must be kept
+	 */
+	
+	NdefModelMergeableOperation collapse(NdefModelOperation operation);
+}
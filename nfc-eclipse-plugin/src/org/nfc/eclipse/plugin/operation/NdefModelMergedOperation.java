@@ -0,0 +1,145 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.operation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 
+ * Consecutive operations merged into one undo step. Operations which set an absolute value are collapsed into one, 
+ * holding the first previous value and the last next value. Other operations might also modify other properties 
+ * of the record depending on the previous state, so they are kept; executing applies them in order and revoking 
+ * reverts them in reverse order.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefModelMergedOperation implements NdefModelChangeOperation, NdefModelSizedOperation, NdefModelMergeableOperation {
+
+	/**
+	 * 
+	 * Merge two operations.
+	 * 
+	 * @param first the first operation, possibly already merged
+	 * @param last the next operation
+	 * @return the merged operation
+	 */
+	
+	public static NdefModelMergedOperation merge(NdefModelMergeableOperation first, NdefModelMergeableOperation last) {
+		List<NdefModelMergeableOperation> operations = new ArrayList<NdefModelMergeableOperation>();
+		if(first instanceof NdefModelMergedOperation) {
+			operations.addAll(((NdefModelMergedOperation)first).operations);
+		} else {
+			operations.add(first);
+		}
+		
+		NdefModelMergeableOperation collapsed = operations.get(operations.size() - 1).collapse(last);
+		if(collapsed != null) {
+			operations.set(operations.size() - 1, collapsed);
+		} else {
+			operations.add(last);
+		}
+		
+		return new NdefModelMergedOperation(operations);
+	}
+	
+	private List<NdefModelMergeableOperation> operations;
+	
+	private NdefModelMergedOperation(List<NdefModelMergeableOperation> operations) {
+		this.operations = operations;
+	}
+
+	@Override
+	public void execute() {
+		for(NdefModelOperation operation : operations) {
+			operation.execute();
+		}
+	}
+
+	@Override
+	public void revoke() {
+		for(int i = operations.size() - 1; i >= 0; i--) {
+			operations.get(i).revoke();
+		}
+	}
+
+	@Override
+	public boolean canMerge(NdefModelOperation operation) {
+		return getLast().canMerge(operation);
+	}
+
+	@Override
+	public NdefModelMergeableOperation collapse(NdefModelOperation operation) {
+		return null;
+	}
+
+	@Override
+	public void getChanges(NdefModelChange change, boolean revoked) {
+		for(int i = 0; i < operations.size(); i++) {
+			NdefModelOperation operation;
+			if(revoked) {
+				operation = operations.get(operations.size() - 1 - i);
+			} else {
+				operation = operations.get(i);
+			}
+			if(operation instanceof NdefModelChangeOperation) {
+				((NdefModelChangeOperation)operation).getChanges(change, revoked);
+			}
+		}
+	}
+
+	@Override
+	public long getRetainedSize() {
+		long size = NdefModelOperationSize.OBJECT_SIZE;
+		for(NdefModelOperation operation : operations) {
+			size += NdefModelOperationSize.getRetainedSize(operation);
+		}
+		return size;
+	}
+	
+	/**
+	 * 
+	 * Get the number of operations kept, after collapsing.
+	 * 
+	 * @return number of operations
+	 */
+	
+	public int getCount() {
+		return operations.size();
+	}
+	
+	public NdefModelMergeableOperation getFirst() {
+		return operations.get(0);
+	}
+	
+	public NdefModelMergeableOperation getLast() {
+		return operations.get(operations.size() - 1);
+	}
+}
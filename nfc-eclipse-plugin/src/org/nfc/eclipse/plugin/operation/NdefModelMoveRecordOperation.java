@@ -32,7 +32,7 @@ import org.nfc.eclipse.plugin.model.NdefRecordModelParent;
 import org.nfctools.ndef.Record;
 
 
-public class NdefModelMoveRecordOperation implements NdefModelOperation {
+public class NdefModelMoveRecordOperation implements NdefModelChangeOperation {
 
 	private NdefRecordModelNode node;
 	
@@ -100,4 +100,13 @@ public class NdefModelMoveRecordOperation implements NdefModelOperation {
 		}
 	}
 
+	@Override
+	public void getChanges(NdefModelChange change, boolean revoked) {
+		if(revoked) {
+			change.remove(nextParent, node);
+		} else {
+			change.remove(previousParent, node);
+		}
+		change.add(node);
+	}
 }
@@ -37,7 +37,7 @@ import java.util.List;
  *
  */
 
-public class NdefModelOperationList implements NdefModelOperation {
+public class NdefModelOperationList implements NdefModelSizedOperation {
 
 	private List<NdefModelOperation> operations;
 
@@ -71,4 +71,12 @@ public class NdefModelOperationList implements NdefModelOperation {
 		}
 	}
 
+	@Override
+	public long getRetainedSize() {
+		long size = NdefModelOperationSize.OBJECT_SIZE;
+		for(NdefModelOperation operation : operations) {
+			size += NdefModelOperationSize.getRetainedSize(operation);
+		}
+		return size;
+	}
 }
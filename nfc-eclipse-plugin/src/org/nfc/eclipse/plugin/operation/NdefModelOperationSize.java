@@ -0,0 +1,144 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.operation;
+
+import java.util.List;
+
+import org.nfc.eclipse.plugin.model.NdefRecordModelLazyRecord;
+import org.nfc.eclipse.plugin.model.NdefRecordModelNode;
+import org.nfc.eclipse.plugin.model.NdefRecordModelParent;
+import org.nfc.eclipse.plugin.model.NdefRecordModelRecord;
+import org.nfctools.ndef.NdefContext;
+
+/**
+ * 
+ * Estimates of the memory retained by operations, for bounding the undo history by size. 
+ * The estimates are rough, but scale with the values and nodes held by each operation.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefModelOperationSize {
+
+	/** estimated size of an operation or node object without its values */
+	public static final int OBJECT_SIZE = 64;
+	
+	/**
+	 * 
+	 * Estimate the size of an operation. 
+	 * 
+	 * @param operation the operation
+	 * @return estimated size in bytes
+	 */
+	
+	public static long getRetainedSize(NdefModelOperation operation) {
+		if(operation instanceof NdefModelSizedOperation) {
+			return ((NdefModelSizedOperation)operation).getRetainedSize();
+		}
+		return OBJECT_SIZE;
+	}
+
+	/**
+	 * 
+	 * Estimate the size of a value held by an operation.
+	 * 
+	 * @param value the value, i.e. a String or byte array
+	 * @return estimated size in bytes
+	 */
+	
+	public static long getSize(Object value) {
+		if(value == null) {
+			return 0;
+		} else if(value instanceof byte[]) {
+			return 16 + ((byte[])value).length;
+		} else if(value instanceof CharSequence) {
+			return 40 + 2 * ((CharSequence)value).length();
+		} else if(value instanceof NdefRecordModelNode) {
+			return getSize((NdefRecordModelNode)value);
+		}
+		return OBJECT_SIZE;
+	}
+
+	/**
+	 * 
+	 * Estimate the size of a node and its children. Records are counted by their encoded size.
+	 * 
+	 * @param node the node
+	 * @return estimated size in bytes
+	 */
+	
+	public static long getSize(NdefRecordModelNode node) {
+		if(node == null) {
+			return 0;
+		}
+		long size = OBJECT_SIZE;
+		
+		if(node instanceof NdefRecordModelRecord) {
+			try {
+				size += ((NdefRecordModelRecord)node).encode(NdefContext.getNdefMessageEncoder()).length;
+			} catch(RuntimeException e) {
+				// not encodable, count the nodes only
+			}
+		}
+		
+		if(node instanceof NdefRecordModelLazyRecord && !((NdefRecordModelLazyRecord)node).isInitialized()) {
+			// no child nodes yet
+			return size;
+		}
+		
+		if(node instanceof NdefRecordModelParent) {
+			for(NdefRecordModelNode child : ((NdefRecordModelParent)node).getChildren()) {
+				if(child instanceof NdefRecordModelRecord) {
+					// nested record, payload already counted
+					size += OBJECT_SIZE;
+				} else {
+					size += getSize(child);
+				}
+			}
+		}
+		
+		return size;
+	}
+
+	/**
+	 * 
+	 * Estimate the size of nodes.
+	 * 
+	 * @param nodes the nodes
+	 * @return estimated size in bytes
+	 */
+	
+	public static long getSize(List<NdefRecordModelNode> nodes) {
+		long size = 0;
+		for(NdefRecordModelNode node : nodes) {
+			size += getSize(node);
+		}
+		return size;
+	}
+}
@@ -0,0 +1,127 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.operation;
+
+import org.nfc.eclipse.plugin.model.NdefRecordModelNode;
+
+/**
+ * 
+ * Wrapper for an operation on the undo / redo stacks. Keeps track of the nodes the operation modifies, 
+ * so that cached encodings of the affected records are cleared whenever the operation is executed or revoked, 
+ * and reports the affected nodes.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefModelOperationStep implements NdefModelSizedOperation {
+
+	private NdefModelOperation operation;
+	
+	private NdefRecordModelNode[] nodes;
+	
+	public NdefModelOperationStep(NdefModelOperation operation, NdefRecordModelNode ... nodes) {
+		this.operation = operation;
+		this.nodes = nodes;
+	}
+
+	private NdefModelChange change;
+	
+	@Override
+	public void execute() {
+		operation.execute();
+		
+		invalidate();
+		
+		change = getChange(false);
+	}
+
+	@Override
+	public void revoke() {
+		operation.revoke();
+		
+		invalidate();
+		
+		change = getChange(true);
+	}
+	
+	private NdefModelChange getChange(boolean revoked) {
+		NdefModelChange change = NdefModelChange.getChange(operation, revoked);
+		if(change == null) {
+			// refresh the records the operation was applied to
+			change = new NdefModelChange();
+			
+			for(NdefRecordModelNode node : nodes) {
+				if(node != null) {
+					NdefRecordModelNode recordNode = null;
+					if(node.hasParent()) {
+						recordNode = node.getRecordNode();
+					}
+					if(recordNode != null) {
+						change.refresh(recordNode);
+					} else {
+						change.refresh(node);
+					}
+				}
+			}
+		}
+		return change;
+	}
+
+	private void invalidate() {
+		for(NdefRecordModelNode node : nodes) {
+			if(node != null) {
+				node.invalidate();
+			}
+		}
+	}
+	
+	public NdefModelOperation getOperation() {
+		return operation;
+	}
+
+	public NdefRecordModelNode[] getNodes() {
+		return nodes;
+	}
+
+	@Override
+	public long getRetainedSize() {
+		return NdefModelOperationSize.OBJECT_SIZE + NdefModelOperationSize.getRetainedSize(operation);
+	}
+
+	/**
+	 * 
+	 * Get the nodes affected by the last execute or revoke.
+	 * 
+	 * @return the changes
+	 */
+	
+	public NdefModelChange getChange() {
+		return change;
+	}
+}
@@ -32,7 +32,7 @@ import org.nfctools.ndef.Record;
 import org.nfctools.ndef.wkt.handover.records.AlternativeCarrierRecord;
 
 
-public class NdefModelRemoveListItemOperation implements NdefModelOperation {
+public class NdefModelRemoveListItemOperation implements NdefModelChangeOperation {
 
 	private NdefRecordModelPropertyList parent;
 	private NdefRecordModelPropertyListItem childNode;
@@ -87,4 +87,12 @@ public class NdefModelRemoveListItemOperation implements NdefModelOperation {
 	}
 	
 
+	@Override
+	public void getChanges(NdefModelChange change, boolean revoked) {
+		if(revoked) {
+			change.add(childNode);
+		} else {
+			change.remove(parent, childNode);
+		}
+	}
 }
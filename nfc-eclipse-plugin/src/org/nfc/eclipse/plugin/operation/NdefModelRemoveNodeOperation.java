@@ -33,7 +33,7 @@ import org.nfc.eclipse.plugin.model.NdefRecordModelRecord;
 import org.nfctools.ndef.Record;
 
 
-public class NdefModelRemoveNodeOperation implements NdefModelOperation {
+public class NdefModelRemoveNodeOperation implements NdefModelChangeOperation, NdefModelSizedOperation {
 
 	private NdefRecordModelParent parent;
 	private NdefRecordModelNode child;
@@ -76,4 +76,17 @@ public class NdefModelRemoveNodeOperation implements NdefModelOperation {
 		parent.insert(child, index);
 	}
 
+	@Override
+	public void getChanges(NdefModelChange change, boolean revoked) {
+		if(revoked) {
+			change.add(child);
+		} else {
+			change.remove(parent, child);
+		}
+	}
+
+	@Override
+	public long getRetainedSize() {
+		return NdefModelOperationSize.OBJECT_SIZE + NdefModelOperationSize.getSize(child);
+	}
 }
@@ -35,21 +35,27 @@ import org.nfc.eclipse.plugin.model.NdefRecordModelParent;
 
 /**
  * 
- * Operation to replace parent records 
+ * Operation to replace parent records. 
+ * 
+ * Only the range of children which differ by reference is kept, so that a step which replaces a large list 
+ * sharing most of its nodes with the current list, holds only the changed nodes.
  * 
  * @author thomas
  *
  */
 
-public class NdefModelReplaceChildRecordsOperation  implements NdefModelOperation {
+public class NdefModelReplaceChildRecordsOperation  implements NdefModelChangeOperation, NdefModelSizedOperation {
 
 	private NdefRecordModelParent parent;
+	/** index of the first replaced child */
+	private int index;
 	private List<NdefRecordModelNode> previous;
 	private List<NdefRecordModelNode> next;
 
 	public NdefModelReplaceChildRecordsOperation(NdefRecordModelParent parent, NdefRecordModelNode previous, NdefRecordModelNode next) {
 		this.parent = parent;
 		
+		this.index = 0;
 		this.previous = new ArrayList<NdefRecordModelNode>();
 		this.previous.add(previous);
 		this.next = new ArrayList<NdefRecordModelNode>();
@@ -58,10 +64,31 @@ public class NdefModelReplaceChildRecordsOperation  implements NdefModelOperatio
 		initialize();
 	}
 
+	/**
+	 * 
+	 * Constructor.
+	 * 
+	 * @param parent the parent
+	 * @param previous the current children of the parent
+	 * @param next the next children of the parent, possibly sharing nodes with the current children
+	 */
+	
 	public NdefModelReplaceChildRecordsOperation(NdefRecordModelParent parent, List<NdefRecordModelNode> previous, List<NdefRecordModelNode> next) {
 		this.parent = parent;
-		this.previous = previous;
-		this.next = next;
+		
+		// skip the children which are the same at the start and at the end
+		int start = 0;
+		int end = 0;
+		while(start < previous.size() && start < next.size() && previous.get(start) == next.get(start)) {
+			start++;
+		}
+		while(end < previous.size() - start && end < next.size() - start && previous.get(previous.size() - 1 - end) == next.get(next.size() - 1 - end)) {
+			end++;
+		}
+		
+		this.index = start;
+		this.previous = new ArrayList<NdefRecordModelNode>(previous.subList(start, previous.size() - end));
+		this.next = new ArrayList<NdefRecordModelNode>(next.subList(start, next.size() - end));
 		
 		initialize();
 	}
@@ -71,12 +98,36 @@ public class NdefModelReplaceChildRecordsOperation  implements NdefModelOperatio
 
 	@Override
 	public void execute() {
-		parent.setChildren(next);
+		parent.replace(index, previous.size(), next);
 	}
 
 	@Override
 	public void revoke() {
-		parent.setChildren(previous);
+		parent.replace(index, next.size(), previous);
+	}
+
+	@Override
+	public void getChanges(NdefModelChange change, boolean revoked) {
+		List<NdefRecordModelNode> removed;
+		List<NdefRecordModelNode> added;
+		if(revoked) {
+			removed = next;
+			added = previous;
+		} else {
+			removed = previous;
+			added = next;
+		}
+		
+		for(NdefRecordModelNode node : removed) {
+			change.remove(parent, node);
+		}
+		for(NdefRecordModelNode node : added) {
+			change.add(node);
+		}
 	}
 
+	@Override
+	public long getRetainedSize() {
+		return NdefModelOperationSize.OBJECT_SIZE + NdefModelOperationSize.getSize(previous) + NdefModelOperationSize.getSize(next);
+	}
 }
@@ -0,0 +1,396 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+package org.nfc.eclipse.plugin.terminal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.nfctools.ndef.NdefContext;
+import org.nfctools.ndef.NdefMessageEncoder;
+import org.nfctools.ndef.Record;
+import org.nfctools.ndef.wkt.records.UriRecord;
+
+/**
+ * 
+ * Bulk provisioning: a queue of messages of which one is written to each presented tag, i.e. serialized URIs or IDs. 
+ * Messages are encoded up front, so that invalid messages are rejected before the run; the encoded bytes are only used 
+ * for validation and for checking the size against the tag capacity, the records are encoded again by each write. 
+ * Results are tracked per tag id; a tag which was provisioned is not written again. Each tag gets the first queued message 
+ * which fits its capacity. A failed message goes back to the head of the queue for the next tag, while attempts are counted 
+ * per tag, so that a bad tag is rejected after the maximum number of attempts without losing the message. A message which 
+ * fails on the maximum number of different tags is abandoned, so that a bad message does not stall the run. 
+ * Shared by all readers, so all methods are synchronized.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefProvisioning {
+
+	public static class Message {
+		
+		private final int index;
+		private final Record[] records;
+		private final byte[] encoded;
+		
+		/** tags the message failed on, and the number of failures on tags without an id */
+		private final Set<String> failedTags = new HashSet<String>();
+		private int failedUnknownTags = 0;
+		
+		private Message(int index, Record[] records, byte[] encoded) {
+			this.index = index;
+			this.records = records;
+			this.encoded = encoded;
+		}
+
+		/**
+		 * 
+		 * @return position of the message in the run
+		 */
+		
+		public int getIndex() {
+			return index;
+		}
+
+		public Record[] getRecords() {
+			return records;
+		}
+
+		public byte[] getEncoded() {
+			return encoded;
+		}
+		
+		/**
+		 * 
+		 * @return number of different tags the message failed on
+		 */
+		
+		public int getFailedTags() {
+			return failedTags.size() + failedUnknownTags;
+		}
+	}
+	
+	public static class Result {
+		
+		private final String tagId;
+		private final int index;
+		private final int attempt;
+		private final Exception exception;
+		
+		public Result(String tagId, int index, int attempt, Exception exception) {
+			this.tagId = tagId;
+			this.index = index;
+			this.attempt = attempt;
+			this.exception = exception;
+		}
+
+		public String getTagId() {
+			return tagId;
+		}
+
+		/**
+		 * 
+		 * @return index of the message written to the tag
+		 */
+		
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * 
+		 * @return number of attempts for the tag, including this one
+		 */
+		
+		public int getAttempt() {
+			return attempt;
+		}
+
+		/**
+		 * 
+		 * @return cause of failure, or null if the tag was provisioned
+		 */
+		
+		public Exception getException() {
+			return exception;
+		}
+	}
+	
+	/**
+	 * 
+	 * Create a run with a single URI record per tag.
+	 * 
+	 * @param uris the URIs
+	 * @return the run
+	 */
+	
+	public static NdefProvisioning fromUris(List<String> uris) {
+		List<List<Record>> messages = new ArrayList<List<Record>>(uris.size());
+		for(String uri : uris) {
+			List<Record> records = new ArrayList<Record>(1);
+			records.add(new UriRecord(uri));
+			
+			messages.add(records);
+		}
+		return new NdefProvisioning(messages);
+	}
+	
+	private final LinkedList<Message> queue = new LinkedList<Message>();
+	
+	private final int total;
+	
+	/** last result per tag id, in order of first presentation */
+	private final Map<String, Result> results = new LinkedHashMap<String, Result>();
+	
+	/** tags which need not be written again */
+	private final Set<String> provisioned = new HashSet<String>();
+	
+	/** failed attempts per tag id */
+	private final Map<String, Integer> attempts = new HashMap<String, Integer>();
+	
+	/** tags which failed the maximum number of attempts */
+	private final Set<String> rejected = new HashSet<String>();
+	
+	/** messages which failed on the maximum number of tags */
+	private final List<Message> abandoned = new ArrayList<Message>();
+	
+	private int maxAttempts = 3;
+	private int maxMessageFailures = 5;
+	
+	private int written = 0;
+	private int failed = 0;
+	
+	/** time of the first write, or -1 */
+	private long started = -1;
+	private long finished = -1;
+	
+	/**
+	 * 
+	 * Create a run. Each message is encoded now, so that invalid messages are found before any tag is written.
+	 * 
+	 * @param messages the messages, one per tag
+	 * @throws IllegalArgumentException if a message cannot be encoded
+	 */
+	
+	public NdefProvisioning(List<List<Record>> messages) {
+		NdefMessageEncoder ndefMessageEncoder = NdefContext.getNdefMessageEncoder();
+
+		for(int i = 0; i < messages.size(); i++) {
+			List<Record> records = messages.get(i);
+			
+			byte[] encoded;
+			try {
+				encoded = ndefMessageEncoder.encode(records);
+			} catch(Exception e) {
+				throw new IllegalArgumentException("Unable to encode message " + i + ": " + e.getMessage(), e);
+			}
+			
+			queue.add(new Message(i, records.toArray(new Record[records.size()]), encoded));
+		}
+		
+		this.total = messages.size();
+	}
+	
+	/**
+	 * 
+	 * Get the message to write to a tag, i.e. the first queued message which fits the tag. 
+	 * Messages which are too large are left in the queue for larger tags.
+	 * 
+	 * @param tagId the tag id, or null if not known
+	 * @param capacity the capacity of the tag in bytes
+	 * @return the message, or null if the tag was already provisioned or rejected, or no remaining message fits
+	 */
+	
+	public synchronized Message next(String tagId, int capacity) {
+		if(tagId != null && (provisioned.contains(tagId) || rejected.contains(tagId))) {
+			return null;
+		}
+		Iterator<Message> iterator = queue.iterator();
+		while(iterator.hasNext()) {
+			Message message = iterator.next();
+			if(message.encoded.length <= capacity) {
+				iterator.remove();
+				
+				return message;
+			}
+		}
+		return null;
+	}
+
+	public synchronized void succeeded(String tagId, Message message) {
+		long time = System.currentTimeMillis();
+		if(started == -1) {
+			started = time;
+		}
+		finished = time;
+
+		written++;
+		
+		if(tagId != null) {
+			provisioned.add(tagId);
+			
+			results.put(tagId, new Result(tagId, message.index, getAttempts(tagId) + 1, null));
+		}
+	}
+
+	/**
+	 * 
+	 * Put the message back at the head of the queue, so that it is written to the next tag, 
+	 * unless it has failed on the maximum number of different tags.
+	 * 
+	 * @param tagId the tag id, or null if not known
+	 * @param message the message which could not be written
+	 * @param exception the cause
+	 */
+	
+	public synchronized void failed(String tagId, Message message, Exception exception) {
+		failed++;
+		
+		if(tagId != null) {
+			message.failedTags.add(tagId);
+		} else {
+			message.failedUnknownTags++;
+		}
+		
+		if(message.getFailedTags() < maxMessageFailures) {
+			queue.addFirst(message);
+		} else {
+			abandoned.add(message);
+		}
+		
+		if(tagId != null) {
+			int attempt = getAttempts(tagId) + 1;
+			
+			attempts.put(tagId, attempt);
+			
+			if(attempt >= maxAttempts) {
+				rejected.add(tagId);
+			}
+			
+			results.put(tagId, new Result(tagId, message.index, attempt, exception));
+		}
+	}
+	
+	private int getAttempts(String tagId) {
+		Integer count = attempts.get(tagId);
+		if(count == null) {
+			return 0;
+		}
+		return count.intValue();
+	}
+	
+	public synchronized boolean isProvisioned(String tagId) {
+		return provisioned.contains(tagId);
+	}
+	
+	public synchronized boolean isRejected(String tagId) {
+		return rejected.contains(tagId);
+	}
+	
+	public synchronized boolean isComplete() {
+		return queue.isEmpty();
+	}
+
+	public synchronized List<Result> getResults() {
+		return new ArrayList<Result>(results.values());
+	}
+
+	public synchronized int getTotal() {
+		return total;
+	}
+
+	public synchronized int getRemaining() {
+		return queue.size();
+	}
+
+	public synchronized int getWritten() {
+		return written;
+	}
+
+	/**
+	 * 
+	 * @return number of failed writes, including those which were retried
+	 */
+	
+	public synchronized int getFailed() {
+		return failed;
+	}
+
+	/**
+	 * 
+	 * @return number of tags given up after the maximum number of attempts
+	 */
+	
+	public synchronized int getRejected() {
+		return rejected.size();
+	}
+	
+	/**
+	 * 
+	 * @return messages given up after failing on the maximum number of different tags
+	 */
+	
+	public synchronized List<Message> getAbandoned() {
+		return new ArrayList<Message>(abandoned);
+	}
+	
+	/**
+	 * 
+	 * @return tags written per minute, measured from the first to the last write
+	 */
+	
+	public synchronized double getTagsPerMinute() {
+		if(written < 2) {
+			return 0;
+		}
+		return (written - 1) * 60000d / Math.max(1, finished - started);
+	}
+
+	public synchronized int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public synchronized void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public synchronized int getMaxMessageFailures() {
+		return maxMessageFailures;
+	}
+
+	public synchronized void setMaxMessageFailures(int maxMessageFailures) {
+		this.maxMessageFailures = maxMessageFailures;
+	}
+	
+}
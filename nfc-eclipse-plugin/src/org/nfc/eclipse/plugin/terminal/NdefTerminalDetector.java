@@ -27,7 +27,20 @@
 package org.nfc.eclipse.plugin.terminal;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.smartcardio.CardException;
+import javax.smartcardio.CardTerminal;
+import javax.smartcardio.CardTerminals;
+import javax.smartcardio.TerminalFactory;
 
 import org.eclipse.core.resources.IStorage;
 import org.eclipse.swt.widgets.Display;
@@ -39,25 +52,14 @@ import org.eclipse.ui.PlatformUI;
 import org.nfc.eclipse.plugin.Activator;
 import org.nfc.eclipse.plugin.NdefEditorPart;
 import org.nfc.eclipse.plugin.NdefMultiPageEditor;
-import org.nfctools.NfcAdapter;
-import org.nfctools.api.Tag;
-import org.nfctools.api.UnknownTagListener;
-import org.nfctools.mf.classic.MfClassicNfcTagListener;
-import org.nfctools.mf.ul.Type2NfcTagListener;
-import org.nfctools.ndef.NdefContext;
 import org.nfctools.ndef.NdefOperations;
-import org.nfctools.ndef.NdefOperationsListener;
-import org.nfctools.ndef.Record;
 import org.nfctools.scio.Terminal;
-import org.nfctools.scio.TerminalHandler;
-import org.nfctools.scio.TerminalMode;
 import org.nfctools.scio.TerminalStatus;
-import org.nfctools.scio.TerminalStatusListener;
 import org.nfctools.spi.acs.AcsTerminal;
 import org.nfctools.spi.scm.SclTerminal;
 
 
-public class NdefTerminalDetector implements Runnable, NdefOperationsListener, TerminalStatusListener, UnknownTagListener {
+public class NdefTerminalDetector implements Runnable {
 
 	private static NdefTerminalDetector detector;
 
@@ -69,67 +71,143 @@ public class NdefTerminalDetector implements Runnable, NdefOperationsListener, T
 		return detector;
 	}
 	
-	private Terminal currentTerminal;
-	
-	private TerminalHandler terminalHandler;
+	/** attached readers by card terminal name, in order of detection; an unmodifiable snapshot which is replaced, never changed */
+	private final AtomicReference<Map<String, NdefTerminalReader>> readers = new AtomicReference<Map<String, NdefTerminalReader>>(Collections.<String, NdefTerminalReader>emptyMap());
 	
-	private NfcAdapter nfcAdapter;
+	/** reader which last saw a tag */
+	private volatile NdefTerminalReader activeReader;
 	
-	private boolean close = false;
+	private volatile boolean close = false;
 		
-	private NdefTerminalListener ndefTerminalReadListener;
-
-	private NdefTerminalListener ndefTerminalWriteListener;
+	private final AtomicReference<NdefTerminalReader.Listeners> listeners = new AtomicReference<NdefTerminalReader.Listeners>(NdefTerminalReader.Listeners.NONE);
 
-	private NdefOperations ndefOperations;
+	private AtomicInteger counter = new AtomicInteger();
 	
-	private TerminalStatus terminalStatus = null;
+	/** bulk provisioning run, or null if tags are read and written as usual */
+	private volatile NdefProvisioning provisioning;
 	
-	private int counter = 0;
+	/** detecting thread, only changed while holding the lock of this detector */
+	private volatile Thread thread;
 	
-	private Thread thread;
+	/** card terminals for waiting for changes, only accessed by the detecting thread */
+	private CardTerminals cardTerminals;
 	
-	public NdefTerminalDetector() {
-		terminalHandler = new TerminalHandler();
-		terminalHandler.addTerminal(new AcsTerminal());
-		terminalHandler.addTerminal(new SclTerminal());
-	}
+	/** maximum time to wait for card terminal changes, so that closing and added card terminals are noticed */
+	private static final long WAIT_FOR_CHANGE_TIMEOUT = 10000;
+	
+	/** waits which return sooner than this are followed by the poll delay, so that the loop does not spin if changes are reported continuously */
+	private static final long MIN_WAIT_FOR_CHANGE = 100;
+	
+	/**
+	 * 
+	 * Start a reader for each newly attached card terminal and stop the readers of removed card terminals.
+	 * Readers are started and stopped outside of any lock, then a new snapshot is published.
+	 * 
+	 * @return true if the set of readers changed
+	 */
 	
 	public boolean detectTerminal() {
+		List<CardTerminal> cardTerminals;
+		try {
+			cardTerminals = TerminalFactory.getDefault().terminals().list();
+		} catch (CardException e) {
+			throw new RuntimeException(e);
+		}
+
+		Map<String, NdefTerminalReader> current = readers.get();
 		
-		synchronized(this) {
-			Terminal terminal = terminalHandler.getAvailableTerminal();
+		Map<String, NdefTerminalReader> next = new LinkedHashMap<String, NdefTerminalReader>(current);
+		List<NdefTerminalReader> started = new ArrayList<NdefTerminalReader>();
+		List<NdefTerminalReader> stopped = new ArrayList<NdefTerminalReader>();
+		
+		Set<String> names = new HashSet<String>();
+		for(CardTerminal cardTerminal : cardTerminals) {
+			String name = cardTerminal.getName();
 			
-			if(currentTerminal == terminal) {
-				return false;
-			}
+			names.add(name);
 			
-			if(currentTerminal != null) {
-				stopReader();
+			if(!next.containsKey(name)) {
+				Terminal terminal = createTerminal(cardTerminal);
+				if(terminal != null) {
+					NdefTerminalReader reader = new NdefTerminalReader(this, terminal);
+					
+					next.put(name, reader);
+					
+					started.add(reader);
+				}
 			}
-			
-			if(terminal != null) {
-				NdefTerminalWrapper.setSeenTerminal(true);
+		}
+		
+		Iterator<Map.Entry<String, NdefTerminalReader>> iterator = next.entrySet().iterator();
+		while(iterator.hasNext()) {
+			Map.Entry<String, NdefTerminalReader> entry = iterator.next();
+			if(!names.contains(entry.getKey())) {
+				iterator.remove();
 				
-				startReader(terminal);
+				stopped.add(entry.getValue());
 			}
-			return true;
+		}
+		
+		if(started.isEmpty() && stopped.isEmpty()) {
+			return false;
+		}
+		
+		for(NdefTerminalReader reader : started) {
+			reader.start();
+		}
+		
+		if(!readers.compareAndSet(current, Collections.unmodifiableMap(next))) {
+			// readers were stopped in the meantime; undo and try again on the next pass
+			for(NdefTerminalReader reader : started) {
+				reader.stop();
+			}
+			return false;
 		}
 
+		for(NdefTerminalReader reader : stopped) {
+			stopReader(reader);
+		}
+		
+		if(close) {
+			// stopped before this pass started, so the stop did not see the new readers
+			stopReaders();
+			
+			return true;
+		}
+		
+		if(!next.isEmpty()) {
+			NdefTerminalWrapper.setSeenTerminal(true);
+		}
+		return true;
 	}
 
-	private void startReader(Terminal terminal) {
-		synchronized(this) {
-			log("Starting terminal " + terminal.getTerminalName());
-			
-			currentTerminal = terminal;
-			currentTerminal.setStatusListener(this);
-			nfcAdapter = new NfcAdapter(terminal, TerminalMode.INITIATOR);
-			
-			nfcAdapter.registerTagListener(new MfClassicNfcTagListener(this));
-			nfcAdapter.registerTagListener(new Type2NfcTagListener(this));
-			nfcAdapter.registerUnknownTagListerner(this);
-			nfcAdapter.startListening();
+	/**
+	 * 
+	 * Create a terminal for a card terminal. A new instance is created for every card terminal, 
+	 * so that each reader has its own connection and listener thread.
+	 * 
+	 * @param cardTerminal the card terminal
+	 * @return the terminal, or null if the card terminal is not supported
+	 */
+	
+	private Terminal createTerminal(CardTerminal cardTerminal) {
+		Terminal[] terminals = new Terminal[]{new AcsTerminal(), new SclTerminal()};
+		
+		for(Terminal terminal : terminals) {
+			if(terminal.canHandle(cardTerminal.getName())) {
+				terminal.setCardTerminal(cardTerminal);
+				
+				return terminal;
+			}
+		}
+		return null;
+	}
+	
+	private void stopReader(NdefTerminalReader reader) {
+		reader.stop();
+		
+		if(activeReader == reader) {
+			activeReader = null;
 		}
 	}
 
@@ -165,7 +243,7 @@ public class NdefTerminalDetector implements Runnable, NdefOperationsListener, T
             );
 	}
 
-	private void log(String message) {
+	void log(String message) {
 		Activator activator = Activator.getDefault();		
 		
 		if(activator != null) {
@@ -174,47 +252,74 @@ public class NdefTerminalDetector implements Runnable, NdefOperationsListener, T
 			
 	}
 
-	public void stopReader() {
-		synchronized(this) {
-			log("Stopping terminal " + currentTerminal.getTerminalName());
-			if(nfcAdapter != null) {
-				nfcAdapter.stopListening();
-				
-				nfcAdapter = null;
-			}
-			currentTerminal = null;
-			ndefOperations = null;
+	public void stopReaders() {
+		// always a new instance, so that a detection pass which started before the stop fails to publish its readers
+		Map<String, NdefTerminalReader> empty = Collections.unmodifiableMap(new LinkedHashMap<String, NdefTerminalReader>());
+		
+		Map<String, NdefTerminalReader> previous = readers.getAndSet(empty);
+		
+		for(NdefTerminalReader reader : previous.values()) {
+			stopReader(reader);
 		}
 	}
 	
 	public void startDetecting() {
-		if(thread == null) {
+		synchronized(this) {
+			// a thread stopped while waiting for changes might still be running, if so it continues
 			close = false;
 			
-			thread = new Thread(this);
-			thread.start();
+			if(thread == null) {
+				thread = new Thread(this);
+				thread.start();
+			}
 		}
 		notfiyChange();
 	}
 	
+	/**
+	 * 
+	 * Stop detecting card terminals and stop the readers. Waiting for card terminal changes cannot be interrupted, 
+	 * so the detecting thread might keep running for up to {@link #WAIT_FOR_CHANGE_TIMEOUT} milliseconds, 
+	 * or continue if detecting is started again meanwhile.
+	 * 
+	 */
+	
 	public void stopDetecting() {
 		log("Stop detecting card terminals");
 		
 		close = true;
 		
 		Thread thread = this.thread;
-		thread.interrupt();
+		if(thread != null) {
+			thread.interrupt();
+		}
 		
-		stopReader();
+		stopReaders();
 		
 		notfiyChange();
 	}
+	
+	/**
+	 * 
+	 * Check whether the detecting thread should exit, i.e. detecting was not started again after being stopped.
+	 * 
+	 * @return true if the thread has been cleared and should exit
+	 */
+	
+	private synchronized boolean exit() {
+		if(close) {
+			thread = null;
+			
+			return true;
+		}
+		return false;
+	}
 
 	@Override
 	public void run() {
 		log("Start detecting card terminals");
 
-		try {
+		do {
 			while(!close) {
 				try {
 					if(detectTerminal()) {
@@ -224,23 +329,63 @@ public class NdefTerminalDetector implements Runnable, NdefOperationsListener, T
 					// usually caused by SCARD_E_NO_READERS_AVAILABLE on list()
 					// ignore
 				}
-				try {
-					// sleep for less time (be more responsive) if we know the user has an NFC reader
-					if(NdefTerminalWrapper.hasSeenReader()) {
-						Thread.sleep(1000);
-					} else {
-						Thread.sleep(5000);
+				
+				long time = System.currentTimeMillis();
+				
+				// wait for readers to change, or poll if that is not possible or returns right away 
+				if(!waitForChange() || System.currentTimeMillis() - time < MIN_WAIT_FOR_CHANGE) {
+					try {
+						// sleep for less time (be more responsive) if we know the user has an NFC reader
+						if(NdefTerminalWrapper.hasSeenReader()) {
+							Thread.sleep(1000);
+						} else {
+							Thread.sleep(5000);
+						}
+					} catch (InterruptedException e) {
+						
 					}
-				} catch (InterruptedException e) {
-					
 				}
 			}
-		} finally {
-			thread = null;
+			// started again while leaving the loop, if so continue
+		} while(!exit());
+	}
+	
+	/**
+	 * 
+	 * Block until a card terminal is removed or a card is inserted or removed, or the timeout expires. 
+	 * Depending on the platform, added card terminals are reported too, otherwise they are found when the wait times out.
+	 * 
+	 * @return true if waited, false if waiting for changes is not possible, i.e. when there are no card terminals
+	 */
+	
+	private boolean waitForChange() {
+		if(cardTerminals == null) {
+			try {
+				cardTerminals = TerminalFactory.getDefault().terminals();
+			} catch(Throwable e) {
+				// no smart card i/o
+				return false;
+			}
 		}
+		
+		try {
+			if(cardTerminals.list().isEmpty()) {
+				return false;
+			}
+			
+			cardTerminals.waitForChange(WAIT_FOR_CHANGE_TIMEOUT);
+			
+			return true;
+		} catch(CardException e) {
+			// usually SCARD_E_NO_READERS_AVAILABLE, or the smart card service was restarted; start over
+			cardTerminals = null;
+		} catch(RuntimeException e) {
+			cardTerminals = null;
+		}
+		return false;
 	}
 
-	private void openNewEditor(final byte[] encode) {
+	void openNewEditor(final NdefTerminalReader reader, final byte[] encode) {
 		log("Open NDEF content in new editor");
 
 		Display.getDefault().asyncExec(new Runnable() {
@@ -249,8 +394,8 @@ public class NdefTerminalDetector implements Runnable, NdefOperationsListener, T
 				// TODO add tag id and type
 				// if some tag id i already open, activate its editor TODO
 				
-				IStorage storage = new NdefTerminalStorage(encode, currentTerminal.getTerminalName() + "-" + counter++); // TODO file name counter i temporary solution
-				IStorageEditorInput input = new NdefTerminalInput(storage, currentTerminal.getTerminalName());
+				IStorage storage = new NdefTerminalStorage(encode, reader.getTerminalName() + "-" + counter.getAndIncrement()); // TODO file name counter i temporary solution
+				IStorageEditorInput input = new NdefTerminalInput(storage, reader.getTerminalName());
 
 				IWorkbenchPage page = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage();
 
@@ -258,7 +403,7 @@ public class NdefTerminalDetector implements Runnable, NdefOperationsListener, T
 					try {
 						page.openEditor(input, NdefMultiPageEditor.class.getName());
 						
-						setStatus("Read tag successful.");
+						reader.setStatus("Read tag successful.");
 					} catch (PartInitException e) {
 						log(e.toString());
 
@@ -271,6 +416,14 @@ public class NdefTerminalDetector implements Runnable, NdefOperationsListener, T
 		});
 	}
 	
+	void setStatus(NdefTerminalReader reader, String message) {
+		// tell readers apart when there is more than one
+		if(readers.get().size() > 1) {
+			message = reader.getTerminalName() + ": " + message;
+		}
+		setStatus(message);
+	}
+	
 	private void setStatus(final String message) {
 		// notify status line if editor is open
     	Display.getDefault().asyncExec(
@@ -309,149 +462,144 @@ public class NdefTerminalDetector implements Runnable, NdefOperationsListener, T
 	// http://eclipsesnippets.blogspot.no/2008/06/programmatically-opening-editor.html
 	// http://stackoverflow.com/questions/171824/programmatically-showing-a-view-from-an-eclipse-plug-in
 	
-	@Override
-	public void onNdefOperations(NdefOperations ndefOperations) {
-		log("onNdefOperations");
-		
-		synchronized(this) {
-			this.ndefOperations = ndefOperations;
-			
-			if(ndefTerminalWriteListener != null && ndefTerminalReadListener != null) {
-				// read first then write, if not the same editor
-				read(false);
-				if(ndefTerminalWriteListener != ndefTerminalReadListener) {
-					write();
-				}
-			} else if(ndefTerminalWriteListener != null) {
-				write();
-			} else if(ndefTerminalReadListener != null) {
-				read(false);
-			} else {
-				read(true);
-			}
-		}
+	NdefTerminalReader.Listeners getListeners() {
+		return listeners.get();
 	}
 	
-	private void read(boolean newEditor) {
-		List<Record> list; 
-		if (ndefOperations.isFormatted()) {
-			if (ndefOperations.hasNdefMessage()) {
-				list = ndefOperations.readNdefMessage();
-			} else {
-				log("Empty formatted tag. Size: " + ndefOperations.getMaxSize() + " bytes");
-				
-				 list = new ArrayList<Record>();
-			}
-		} else {
-			log("Empty tag. NOT formatted. Size: " + ndefOperations.getMaxSize() + " bytes");
-			
-			 list = new ArrayList<Record>();
-		}
-		
-		if(newEditor) {
-			log("Read NDEF into new editor");
-			
-			final byte[] encode = NdefContext.getNdefMessageEncoder().encode(list);
-
-			openNewEditor(encode);
-		} else {
-			log("Read NDEF into open editor " + ndefTerminalReadListener.getClass().getSimpleName());
-			
-			ndefTerminalReadListener.setNdefContent(list);
-			
-			setStatus("Auto-read successful.");
-		}
+	public NdefTerminalListener getNdefTerminalReadListener() {
+		return listeners.get().getRead();
+	}
 
+	public void setNdefTerminalReadListener(NdefTerminalListener ndefTerminalReadListener) {
+		NdefTerminalReader.Listeners current;
+		do {
+			current = listeners.get();
+		} while(!listeners.compareAndSet(current, current.withRead(ndefTerminalReadListener)));
 	}
 	
-	private void write() {
-		log("Write NDEF from editor " + ndefTerminalWriteListener.getClass().getSimpleName());
-
-		List<Record> records = ndefTerminalWriteListener.getNdefRecords();
-		
-		if(ndefOperations != null) {
-    		try {
-    			NdefContext.getNdefMessageEncoder().encode(records);
-
-				if(ndefOperations.isFormatted()) {
-					ndefOperations.writeNdefMessage(records.toArray(new Record[records.size()]));
-				} else {
-					ndefOperations.format(records.toArray(new Record[records.size()]));
-				}
-    			setStatus("Auto-write successful.");
-    		} catch(Exception e) {
-    			setStatus("Auto-write not possible.");
-    		}
-		}
+	public NdefTerminalListener getNdefTerminalWriteListener() {
+		return listeners.get().getWrite();
 	}
 
-	@Override
-	public void onStatusChanged(TerminalStatus status) {
+	public void setNdefTerminalWriteListener(NdefTerminalListener ndefTerminalWriteListener) {
+		NdefTerminalReader.Listeners current;
+		do {
+			current = listeners.get();
+		} while(!listeners.compareAndSet(current, current.withWrite(ndefTerminalWriteListener)));
+	}
 
-		synchronized(this) {
-			if(this.terminalStatus != status) {
-				/*
-				if(status == TerminalStatus.CLOSED) {
-					stopReader();
-					
-					notfiyChange();
-				} else 
-				*/
-				if(status == TerminalStatus.CONNECTED) {
-					setStatus("Tag connected.");
-				} else if(status == TerminalStatus.DISCONNECTED) {
-					setStatus("Tag disconnected.");
-					
-					ndefOperations = null;
-				} else if(status == TerminalStatus.WAITING) {
-					// do nothing
-				}
-				this.terminalStatus = status;
+	public String getTerminalName() {
+		Map<String, NdefTerminalReader> readers = this.readers.get();
+		if(readers.isEmpty()) {
+			return null;
+		}
+		StringBuilder builder = new StringBuilder();
+		for(NdefTerminalReader reader : readers.values()) {
+			if(builder.length() > 0) {
+				builder.append(", ");
 			}
+			builder.append(reader.getTerminalName());
 		}
+		return builder.toString();
+	}
+	
+	public List<String> getTerminalNames() {
+		return new ArrayList<String>(readers.get().keySet());
+	}
+	
+	public NdefTerminalReader getReader(String terminalName) {
+		return readers.get().get(terminalName);
 	}
 
-	public NdefTerminalListener getNdefTerminalReadListener() {
-		return ndefTerminalReadListener;
+	/**
+	 * 
+	 * Set the read listener of a single reader, overriding the listener set on the detector.
+	 * 
+	 * @param terminalName card terminal name
+	 * @param ndefTerminalReadListener listener, or null for the listener set on the detector
+	 * @return false if no such reader is attached
+	 */
+	
+	public boolean setNdefTerminalReadListener(String terminalName, NdefTerminalListener ndefTerminalReadListener) {
+		NdefTerminalReader reader = getReader(terminalName);
+		if(reader != null) {
+			reader.setNdefTerminalReadListener(ndefTerminalReadListener);
+			
+			return true;
+		}
+		return false;
 	}
 
-	public void setNdefTerminalReadListener(NdefTerminalListener ndefTerminalReadListener) {
-		synchronized(this) {
-			this.ndefTerminalReadListener = ndefTerminalReadListener;
+	/**
+	 * 
+	 * Set the write listener of a single reader, overriding the listener set on the detector.
+	 * 
+	 * @param terminalName card terminal name
+	 * @param ndefTerminalWriteListener listener, or null for the listener set on the detector
+	 * @return false if no such reader is attached
+	 */
+
+	public boolean setNdefTerminalWriteListener(String terminalName, NdefTerminalListener ndefTerminalWriteListener) {
+		NdefTerminalReader reader = getReader(terminalName);
+		if(reader != null) {
+			reader.setNdefTerminalWriteListener(ndefTerminalWriteListener);
+			
+			return true;
 		}
+		return false;
 	}
 	
-	public NdefTerminalListener getNdefTerminalWriteListener() {
-		return ndefTerminalWriteListener;
+	public NdefProvisioning getProvisioning() {
+		return provisioning;
 	}
 
-	public void setNdefTerminalWriteListener(NdefTerminalListener ndefTerminalWriteListener) {
-		synchronized(this) {
-			this.ndefTerminalWriteListener = ndefTerminalWriteListener;
-		}
+	/**
+	 * 
+	 * Start or stop bulk provisioning. While provisioning, every presented tag gets the next message of the run 
+	 * instead of being read or auto-written.
+	 * 
+	 * @param provisioning the run, or null to stop
+	 */
+	
+	public void setProvisioning(NdefProvisioning provisioning) {
+		this.provisioning = provisioning;
 	}
-
-	public String getTerminalName() {
-		synchronized(this) {
-			if(currentTerminal != null) {
-				return currentTerminal.getTerminalName();
+	
+	void setActiveReader(NdefTerminalReader reader) {
+		this.activeReader = reader;
+	}
+	
+	private NdefTerminalReader getActiveReader() {
+		NdefTerminalReader reader = activeReader;
+		if(reader == null) {
+			Map<String, NdefTerminalReader> readers = this.readers.get();
+			if(readers.size() == 1) {
+				reader = readers.values().iterator().next();
 			}
-			return null;
 		}
+		return reader;
 	}
 
+	/**
+	 * 
+	 * Get the operations of the tag on the reader which last saw a tag.
+	 * 
+	 */
+	
 	public NdefOperations getNdefOperations() {
-		return ndefOperations;
+		NdefTerminalReader reader = getActiveReader();
+		if(reader != null) {
+			return reader.getNdefOperations();
+		}
+		return null;
 	}
 
 	public TerminalStatus getTerminalStatus() {
-		return terminalStatus;
+		NdefTerminalReader reader = getActiveReader();
+		if(reader != null) {
+			return reader.getTerminalStatus();
+		}
+		return null;
 	}
-
-	@Override
-	public void unsupportedTag(Tag tag) {
-		setStatus("Unsupported tag of type " + tag.getTagType() + " detected");
-	};
-	
 	
 }
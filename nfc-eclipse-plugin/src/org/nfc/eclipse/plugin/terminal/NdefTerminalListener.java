@@ -41,6 +41,11 @@ import org.nfctools.ndef.Record;
 
 public interface NdefTerminalListener {
 
+	/**
+	 * 
+	 * @return a copy of the records, which can be used from any thread
+	 */
+	
 	List<Record> getNdefRecords();
 	
 	void setNdefContent(List<Record> content);
@@ -0,0 +1,447 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+package org.nfc.eclipse.plugin.terminal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.core.runtime.jobs.IJobManager;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.nfc.eclipse.plugin.NdefTerminalJob;
+import org.nfctools.NfcAdapter;
+import org.nfctools.api.ApduTag;
+import org.nfctools.api.NfcTagListener;
+import org.nfctools.api.Tag;
+import org.nfctools.api.UnknownTagListener;
+import org.nfctools.mf.classic.MfClassicNfcTagListener;
+import org.nfctools.mf.ul.Type2NfcTagListener;
+import org.nfctools.ndef.NdefContext;
+import org.nfctools.ndef.NdefOperations;
+import org.nfctools.ndef.NdefOperationsListener;
+import org.nfctools.ndef.Record;
+import org.nfctools.scio.Command;
+import org.nfctools.scio.Response;
+import org.nfctools.scio.Terminal;
+import org.nfctools.scio.TerminalMode;
+import org.nfctools.scio.TerminalStatus;
+import org.nfctools.scio.TerminalStatusListener;
+
+/**
+ * 
+ * A single attached card terminal. Each reader has its own {@link NfcAdapter}, which listens for tags in its own thread, 
+ * so that tags on different readers are read and written in parallel. Read / write listeners can be set per reader; 
+ * if not set, the listeners of the detector are used.<br/><br/>
+ * 
+ * No locks are taken: state is kept in immutable snapshots which are replaced atomically, and tag i/o runs on 
+ * the adapter thread against the operations it was handed, so getters never wait for the hardware.
+ * 
+ * @author thomas
+ *
+ */
+
+public class NdefTerminalReader implements NdefOperationsListener, TerminalStatusListener, UnknownTagListener {
+
+	/** PC/SC get data instruction, returns the tag UID */
+	private static final int INS_GET_DATA = 0xCA;
+	
+	/**
+	 * 
+	 * Immutable pair of read and write listener.
+	 * 
+	 */
+	
+	static final class Listeners {
+		
+		static final Listeners NONE = new Listeners(null, null);
+		
+		private final NdefTerminalListener read;
+		private final NdefTerminalListener write;
+		
+		Listeners(NdefTerminalListener read, NdefTerminalListener write) {
+			this.read = read;
+			this.write = write;
+		}
+
+		NdefTerminalListener getRead() {
+			return read;
+		}
+
+		NdefTerminalListener getWrite() {
+			return write;
+		}
+		
+		Listeners withRead(NdefTerminalListener read) {
+			return new Listeners(read, write);
+		}
+
+		Listeners withWrite(NdefTerminalListener write) {
+			return new Listeners(read, write);
+		}
+	}
+	
+	/**
+	 * 
+	 * Immutable tag state.
+	 * 
+	 */
+	
+	private static final class State {
+		
+		private final NdefOperations ndefOperations;
+		private final TerminalStatus terminalStatus;
+		
+		private State(NdefOperations ndefOperations, TerminalStatus terminalStatus) {
+			this.ndefOperations = ndefOperations;
+			this.terminalStatus = terminalStatus;
+		}
+	}
+	
+	/**
+	 * 
+	 * Tag listener which keeps track of the tag being handled, so that it can be identified.
+	 * 
+	 */
+	
+	private class TagListener implements NfcTagListener {
+		
+		private final NfcTagListener delegate;
+
+		public TagListener(NfcTagListener delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public boolean canHandle(Tag tag) {
+			return delegate.canHandle(tag);
+		}
+
+		@Override
+		public void handleTag(Tag tag) {
+			NdefTerminalReader.this.tag = tag;
+			try {
+				delegate.handleTag(tag);
+			} finally {
+				NdefTerminalReader.this.tag = null;
+			}
+		}
+	}
+
+	private final NdefTerminalDetector detector;
+	
+	private final Terminal terminal;
+	
+	private final AtomicReference<NfcAdapter> nfcAdapter = new AtomicReference<NfcAdapter>();
+	
+	private final AtomicReference<Listeners> listeners = new AtomicReference<Listeners>(Listeners.NONE);
+
+	private final AtomicReference<State> state = new AtomicReference<State>(new State(null, null));
+	
+	/** tag being handled, only accessed by the adapter thread */
+	private Tag tag;
+
+	public NdefTerminalReader(NdefTerminalDetector detector, Terminal terminal) {
+		this.detector = detector;
+		this.terminal = terminal;
+	}
+
+	public void start() {
+		detector.log("Starting terminal " + terminal.getTerminalName());
+		
+		terminal.setStatusListener(this);
+		NfcAdapter nfcAdapter = new NfcAdapter(terminal, TerminalMode.INITIATOR);
+		
+		nfcAdapter.registerTagListener(new TagListener(new MfClassicNfcTagListener(this)));
+		nfcAdapter.registerTagListener(new TagListener(new Type2NfcTagListener(this)));
+		nfcAdapter.registerUnknownTagListerner(this);
+		
+		if(this.nfcAdapter.compareAndSet(null, nfcAdapter)) {
+			nfcAdapter.startListening();
+		}
+	}
+	
+	public void stop() {
+		detector.log("Stopping terminal " + terminal.getTerminalName());
+		
+		NfcAdapter nfcAdapter = this.nfcAdapter.getAndSet(null);
+		if(nfcAdapter != null) {
+			nfcAdapter.stopListening();
+		}
+		State current;
+		do {
+			current = state.get();
+		} while(!state.compareAndSet(current, new State(null, current.terminalStatus)));
+	}
+
+	@Override
+	public void onNdefOperations(NdefOperations ndefOperations) {
+		detector.log("onNdefOperations on " + terminal.getTerminalName());
+		
+		// publish the operations, then do the i/o without holding on to any state
+		State current;
+		do {
+			current = state.get();
+		} while(!state.compareAndSet(current, new State(ndefOperations, current.terminalStatus)));
+		
+		detector.setActiveReader(this);
+		
+		// jobs started from the editors use the same operations, so do not overlap with them
+		ISchedulingRule rule = new NdefTerminalJob.TagRule(ndefOperations);
+		
+		IJobManager jobManager = Job.getJobManager();
+		jobManager.beginRule(rule, null);
+		try {
+			handle(ndefOperations);
+		} finally {
+			jobManager.endRule(rule);
+		}
+	}
+	
+	private void handle(NdefOperations ndefOperations) {
+		NdefProvisioning provisioning = detector.getProvisioning();
+		if(provisioning != null) {
+			provision(ndefOperations, provisioning);
+			
+			return;
+		}
+		
+		// resolve the listeners once, so that changes during i/o apply to the next tag
+		Listeners own = listeners.get();
+		Listeners global = detector.getListeners();
+		
+		NdefTerminalListener readListener = own.getRead() != null ? own.getRead() : global.getRead();
+		NdefTerminalListener writeListener = own.getWrite() != null ? own.getWrite() : global.getWrite();
+		
+		if(writeListener != null && readListener != null) {
+			// read first then write, if not the same editor
+			read(ndefOperations, readListener);
+			if(writeListener != readListener) {
+				write(ndefOperations, writeListener);
+			}
+		} else if(writeListener != null) {
+			write(ndefOperations, writeListener);
+		} else if(readListener != null) {
+			read(ndefOperations, readListener);
+		} else {
+			read(ndefOperations, null);
+		}
+	}
+	
+	private void read(NdefOperations ndefOperations, NdefTerminalListener readListener) {
+		List<Record> list; 
+		if (ndefOperations.isFormatted()) {
+			if (ndefOperations.hasNdefMessage()) {
+				list = ndefOperations.readNdefMessage();
+			} else {
+				detector.log("Empty formatted tag. Size: " + ndefOperations.getMaxSize() + " bytes");
+				
+				 list = new ArrayList<Record>();
+			}
+		} else {
+			detector.log("Empty tag. NOT formatted. Size: " + ndefOperations.getMaxSize() + " bytes");
+			
+			 list = new ArrayList<Record>();
+		}
+		
+		if(readListener == null) {
+			detector.log("Read NDEF into new editor");
+			
+			final byte[] encode = NdefContext.getNdefMessageEncoder().encode(list);
+
+			detector.openNewEditor(this, encode);
+		} else {
+			detector.log("Read NDEF into open editor " + readListener.getClass().getSimpleName());
+			
+			readListener.setNdefContent(list);
+			
+			setStatus("Auto-read successful.");
+		}
+	}
+	
+	private void write(NdefOperations ndefOperations, NdefTerminalListener writeListener) {
+		detector.log("Write NDEF from editor " + writeListener.getClass().getSimpleName());
+
+		if(ndefOperations != null) {
+    		try {
+    			// a copy of the records, which fails if they cannot be encoded
+    			List<Record> records = writeListener.getNdefRecords();
+
+				if(ndefOperations.isFormatted()) {
+					ndefOperations.writeNdefMessage(records.toArray(new Record[records.size()]));
+				} else {
+					ndefOperations.format(records.toArray(new Record[records.size()]));
+				}
+    			setStatus("Auto-write successful.");
+    		} catch(Exception e) {
+    			setStatus("Auto-write not possible.");
+    		}
+		}
+	}
+
+	private void provision(NdefOperations ndefOperations, NdefProvisioning provisioning) {
+		String tagId = getTagId();
+		
+		// messages are sized against the capacity before one is taken, so that a message which is too large is not charged to the tag 
+		int maxSize;
+		try {
+			maxSize = ndefOperations.getMaxSize();
+		} catch(Exception e) {
+			setStatus("Provisioning tag " + (tagId != null ? tagId : "") + " failed: " + e.toString());
+			
+			return;
+		}
+		
+		NdefProvisioning.Message message = provisioning.next(tagId, maxSize);
+		if(message == null) {
+			if(tagId != null && provisioning.isProvisioned(tagId)) {
+				setStatus("Tag " + tagId + " already provisioned.");
+			} else if(tagId != null && provisioning.isRejected(tagId)) {
+				setStatus("Tag " + tagId + " rejected after " + provisioning.getMaxAttempts() + " failed attempts.");
+			} else if(!provisioning.isComplete()) {
+				setStatus("No remaining message fits tag capacity of " + maxSize + " bytes.");
+			} else {
+				setStatus("Provisioning complete, " + provisioning.getWritten() + " of " + provisioning.getTotal() + " tags written.");
+			}
+			return;
+		}
+		
+		try {
+			if(ndefOperations.isFormatted()) {
+				ndefOperations.writeNdefMessage(message.getRecords());
+			} else {
+				ndefOperations.format(message.getRecords());
+			}
+			
+			provisioning.succeeded(tagId, message);
+			
+			setStatus("Provisioned tag " + (tagId != null ? tagId : "") + " with message " + message.getIndex() + ", " + provisioning.getWritten() + " of " + provisioning.getTotal() + " written, " + Math.round(provisioning.getTagsPerMinute()) + " tags per minute.");
+		} catch(Exception e) {
+			provisioning.failed(tagId, message, e);
+			
+			setStatus("Provisioning tag " + (tagId != null ? tagId : "") + " failed: " + e.toString());
+		}
+	}
+	
+	/**
+	 * 
+	 * Get the UID of the current tag. 
+	 * 
+	 * @return the UID in hex, or null if not available
+	 */
+	
+	private String getTagId() {
+		Tag tag = this.tag;
+		if(tag instanceof ApduTag) {
+			try {
+				Response response = ((ApduTag)tag).transmit(new Command(INS_GET_DATA, 0x00, 0x00, 0));
+				
+				if(response.isSuccess()) {
+					byte[] data = response.getData();
+					
+					StringBuilder builder = new StringBuilder(data.length * 2);
+					for(byte b : data) {
+						builder.append(String.format("%02X", b & 0xFF));
+					}
+					return builder.toString();
+				}
+			} catch(Exception e) {
+				detector.log("Unable to get tag id: " + e.toString());
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void onStatusChanged(TerminalStatus status) {
+
+		State current;
+		do {
+			current = state.get();
+			
+			if(current.terminalStatus == status) {
+				return;
+			}
+		} while(!state.compareAndSet(current, new State(status == TerminalStatus.DISCONNECTED ? null : current.ndefOperations, status)));
+
+		if(status == TerminalStatus.CONNECTED) {
+			setStatus("Tag connected.");
+		} else if(status == TerminalStatus.DISCONNECTED) {
+			setStatus("Tag disconnected.");
+		} else if(status == TerminalStatus.WAITING) {
+			// do nothing
+		}
+	}
+
+	@Override
+	public void unsupportedTag(Tag tag) {
+		setStatus("Unsupported tag of type " + tag.getTagType() + " detected");
+	}
+
+	void setStatus(String message) {
+		detector.setStatus(this, message);
+	}
+
+	public NdefTerminalListener getNdefTerminalReadListener() {
+		return listeners.get().getRead();
+	}
+
+	public void setNdefTerminalReadListener(NdefTerminalListener ndefTerminalReadListener) {
+		Listeners current;
+		do {
+			current = listeners.get();
+		} while(!listeners.compareAndSet(current, current.withRead(ndefTerminalReadListener)));
+	}
+	
+	public NdefTerminalListener getNdefTerminalWriteListener() {
+		return listeners.get().getWrite();
+	}
+
+	public void setNdefTerminalWriteListener(NdefTerminalListener ndefTerminalWriteListener) {
+		Listeners current;
+		do {
+			current = listeners.get();
+		} while(!listeners.compareAndSet(current, current.withWrite(ndefTerminalWriteListener)));
+	}
+
+	public String getTerminalName() {
+		return terminal.getTerminalName();
+	}
+
+	public Terminal getTerminal() {
+		return terminal;
+	}
+
+	public NdefOperations getNdefOperations() {
+		return state.get().ndefOperations;
+	}
+
+	public TerminalStatus getTerminalStatus() {
+		return state.get().terminalStatus;
+	}
+
+}
@@ -43,6 +43,9 @@ import org.osgi.service.prefs.Preferences;
 
 public class NdefTerminalWrapper {
 
+	/** the seen reader preference, read once; null if not read yet */
+	private static volatile Boolean seenReader;
+
 	public static boolean isAvailable() {
 		try {
 			return org.nfc.eclipse.plugin.terminal.NdefTerminalDetector.getInstance() != null;
@@ -129,11 +132,42 @@ public class NdefTerminalWrapper {
 		return null;
 	}
 
-	public static boolean hasSeenReader() {
-		Preferences preferences = ConfigurationScope.INSTANCE.getNode(Activator.class.getPackage().getName());
-		Preferences reader = preferences.node("reader");
+	public static NdefProvisioning getProvisioning() {
+		try {
+			org.nfc.eclipse.plugin.terminal.NdefTerminalDetector detector = org.nfc.eclipse.plugin.terminal.NdefTerminalDetector.getInstance();
+	
+			if(detector != null) {
+				return detector.getProvisioning();
+			}
+		} catch(Exception e) {
+			// ignore
+		} 
+		return null;
+	}
 
-		return reader.getBoolean("seen", false);
+	public static void setProvisioning(NdefProvisioning provisioning) {
+		try {
+			org.nfc.eclipse.plugin.terminal.NdefTerminalDetector detector = org.nfc.eclipse.plugin.terminal.NdefTerminalDetector.getInstance();
+	
+			if(detector != null) {
+				detector.setProvisioning(provisioning);
+			}
+		} catch(Exception e) {
+			// ignore
+		} 
+	}
+
+	public static boolean hasSeenReader() {
+		Boolean seen = seenReader;
+		if(seen == null) {
+			Preferences preferences = ConfigurationScope.INSTANCE.getNode(Activator.class.getPackage().getName());
+			Preferences reader = preferences.node("reader");
+	
+			seen = Boolean.valueOf(reader.getBoolean("seen", false));
+			
+			seenReader = seen;
+		}
+		return seen.booleanValue();
 	}
 
 	public static boolean isReaderEnabledPreference() {
@@ -160,6 +194,10 @@ public class NdefTerminalWrapper {
 	}
 
 	public static void setSeenTerminal(boolean seen) {
+		if(hasSeenReader() == seen) {
+			return;
+		}
+		
 		Preferences preferences = ConfigurationScope.INSTANCE.getNode(Activator.class.getPackage().getName());
 		Preferences reader = preferences.node("reader");
 
@@ -173,6 +211,8 @@ public class NdefTerminalWrapper {
 				e.printStackTrace();
 			}
 		}
+		
+		seenReader = Boolean.valueOf(seen);
 	}
 
 	public static void enable() {
@@ -28,8 +28,6 @@ package org.nfc.eclipse.plugin.util;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -42,8 +40,8 @@ import eu.medsea.mimeutil.detector.ExtensionMimeDetector;
 
 /**
  * 
- * Utility for remembering used mime types and extensions, so that they can be
- * used in file dialogs
+ * Utility for file dialogs with filters for the used mime types and extensions, 
+ * as remembered by {@link MimeTypeRegistry}
  * 
  * @author thomas
  * 
@@ -51,31 +49,23 @@ import eu.medsea.mimeutil.detector.ExtensionMimeDetector;
 
 public class FileDialogUtil {
 
-	private static Set<String> mimeTypes;
-	private static Set<String> exts;
-
 	private static String lastMimeType = null;
 	private static String lastExt = null;
 
-	static {
-		mimeTypes = Collections.synchronizedSet(new HashSet<String>());
-		exts = Collections.synchronizedSet(new HashSet<String>());
-	}
-
 	public static boolean registerMimeType(String e) {
-		return mimeTypes.add(e);
+		return MimeTypeRegistry.registerMimeType(e);
 	}
 
 	public static boolean registerExtension(String e) {
-		return exts.add(e);
+		return MimeTypeRegistry.registerExtension(e);
 	}
 
 	public static Set<String> getMimeTypes() {
-		return mimeTypes;
+		return MimeTypeRegistry.getMimeTypes();
 	}
 
 	public static Set<String> getExts() {
-		return exts;
+		return MimeTypeRegistry.getExts();
 	}
 
 	public static String getLastMimeType() {
@@ -87,7 +77,7 @@ public class FileDialogUtil {
 	}
 
 	public static void setMimeTypes(Set<String> mimeTypes) {
-		FileDialogUtil.mimeTypes = mimeTypes;
+		MimeTypeRegistry.setMimeTypes(mimeTypes);
 	}
 
 	public static String getLastExt() {
@@ -102,6 +92,9 @@ public class FileDialogUtil {
 
 		List<String> filterNames = new ArrayList<String>();
 		List<String> filterExtensions = new ArrayList<String>();
+		
+		Set<String> exts = MimeTypeRegistry.getExts();
+		Set<String> mimeTypes = MimeTypeRegistry.getMimeTypes();
 
 		if (mimeTypeHint != null) {
 			// guess file ext from mime type
@@ -0,0 +1,125 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.util;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * 
+ * Utility for converting QR code matrices to images. Writes whole 1-bit scanlines 
+ * instead of going through {@link ImageData#setPixel(int, int, int)} for each pixel.
+ * 
+ * @author thomas
+ *
+ */
+
+public class ImageDataUtil {
+
+	/** bits of each byte value in reverse order; BitArray is least significant bit first, 1-bit ImageData most significant bit first */
+	private static final byte[] REVERSED = new byte[256];
+	
+	static {
+		for(int i = 0; i < REVERSED.length; i++) {
+			REVERSED[i] = (byte)(Integer.reverse(i) >>> 24);
+		}
+	}
+	
+	/**
+	 * 
+	 * Create a 1-bit image, white background and black for set bits.
+	 * 
+	 * @param matrix the matrix
+	 * @return the image
+	 */
+
+	public static ImageData toImageData(BitMatrix matrix) {
+		ImageData imageData = newImageData(matrix.getWidth(), matrix.getHeight());
+
+		write(matrix, imageData, 0, 0, new BitArray(matrix.getWidth()));
+		
+		return imageData;
+	}
+	
+	/**
+	 * 
+	 * Create a 1-bit image of matrices laid out in a grid, left to right and top to bottom. 
+	 * 
+	 * @param matrices the matrices
+	 * @param columns number of columns in the grid
+	 * @return the image
+	 */
+
+	public static ImageData toImageData(BitMatrix[] matrices, int columns) {
+		int rows = (matrices.length + columns - 1) / columns;
+		
+		int cellWidth = 0;
+		int cellHeight = 0;
+		for(BitMatrix matrix : matrices) {
+			cellWidth = Math.max(cellWidth, matrix.getWidth());
+			cellHeight = Math.max(cellHeight, matrix.getHeight());
+		}
+		// cells start at whole bytes
+		cellWidth = (cellWidth + 7) & ~7;
+		
+		ImageData imageData = newImageData(cellWidth * columns, cellHeight * rows);
+
+		BitArray row = new BitArray(cellWidth);
+		for(int i = 0; i < matrices.length; i++) {
+			write(matrices[i], imageData, (i % columns) * cellWidth / 8, (i / columns) * cellHeight, row);
+		}
+		
+		return imageData;
+	}
+
+	private static ImageData newImageData(int width, int height) {
+		return new ImageData(width, height, 1, new PaletteData(new RGB[]{new RGB(0xFF, 0xFF, 0xFF), new RGB(0x00, 0x00, 0x00)}));
+	}
+	
+	private static void write(BitMatrix matrix, ImageData imageData, int byteOffset, int lineOffset, BitArray row) {
+		byte[] data = imageData.data;
+		int bytesPerLine = imageData.bytesPerLine;
+		int bytesPerRow = (matrix.getWidth() + 7) / 8;
+		
+		// reuse a single row, bits beyond the width are always clear
+		for (int y = 0; y < matrix.getHeight(); y++) {
+			row = matrix.getRow(y, row);
+			int[] bits = row.getBitArray();
+			
+			int offset = (lineOffset + y) * bytesPerLine + byteOffset;
+			for (int i = 0; i < bytesPerRow; i++) {
+				data[offset + i] = REVERSED[(bits[i >> 2] >>> ((i & 3) << 3)) & 0xFF];
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,89 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.util;
+
+/**
+ * 
+ * Logging for classes which are also used outside of Eclipse, i.e. by the batch compiler. 
+ * Forwards to the plugin log when the plugin is started, otherwise warnings and errors go to standard error.
+ * 
+ * @author thomas
+ *
+ */
+
+public class Log {
+
+	public static interface Handler {
+		
+		void log(int severity, String message, Throwable e);
+	}
+	
+	/** severities, same values as in org.eclipse.core.runtime.IStatus */
+	public static final int INFO = 0x01;
+	public static final int WARNING = 0x02;
+	public static final int ERROR = 0x04;
+	
+	private static volatile Handler handler;
+	
+	public static void setHandler(Handler handler) {
+		Log.handler = handler;
+	}
+	
+	public static void info(String message) {
+		log(INFO, message, null);
+	}
+
+	public static void warn(String message) {
+		log(WARNING, message, null);
+	}
+	
+	public static void warn(String message, Throwable e) {
+		log(WARNING, message, e);
+	}
+
+	public static void error(String message) {
+		log(ERROR, message, null);
+	}
+
+	public static void error(String message, Throwable e) {
+		log(ERROR, message, e);
+	}
+	
+	private static void log(int severity, String message, Throwable e) {
+		Handler handler = Log.handler;
+		if(handler != null) {
+			handler.log(severity, message, e);
+		} else if(severity != INFO) {
+			System.err.println(message);
+			
+			if(e != null) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
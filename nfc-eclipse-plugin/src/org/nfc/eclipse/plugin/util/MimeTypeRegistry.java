@@ -0,0 +1,67 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+package org.nfc.eclipse.plugin.util;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 
+ * Registry of used mime types and extensions, which are offered as filters in file dialogs. 
+ * Free of UI dependencies, so that the model can register types when used outside of Eclipse, i.e. by the batch compiler.
+ * 
+ * @author thomas
+ * 
+ */
+
+public class MimeTypeRegistry {
+
+	private static Set<String> mimeTypes = Collections.synchronizedSet(new HashSet<String>());
+	private static Set<String> exts = Collections.synchronizedSet(new HashSet<String>());
+
+	public static boolean registerMimeType(String e) {
+		return mimeTypes.add(e);
+	}
+
+	public static boolean registerExtension(String e) {
+		return exts.add(e);
+	}
+
+	public static Set<String> getMimeTypes() {
+		return mimeTypes;
+	}
+
+	public static void setMimeTypes(Set<String> mimeTypes) {
+		MimeTypeRegistry.mimeTypes = mimeTypes;
+	}
+
+	public static Set<String> getExts() {
+		return exts;
+	}
+
+}
@@ -0,0 +1,106 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin;
+
+import static org.junit.Assert.assertEquals;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.junit.Test;
+import org.nfc.eclipse.plugin.util.ImageDataUtil;
+
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.binary.BinaryQRCodeWriter;
+
+public class TestImageDataUtil {
+
+	@Test
+	public void testSameAsPixelLoop() throws Exception {
+		BinaryQRCodeWriter writer = new BinaryQRCodeWriter();
+
+		for(int size : new int[]{1, 7, 8, 9, 31, 33, 100, 257, 800}) {
+			for(int length : new int[]{1, 100, 1000}) {
+				BitMatrix matrix = writer.encode(new byte[length], com.google.zxing.BarcodeFormat.QR_CODE, size, size);
+
+				ImageData expected = toImageDataPerPixel(matrix);
+				ImageData actual = ImageDataUtil.toImageData(matrix);
+				
+				assertEquals(expected.width, actual.width);
+				assertEquals(expected.height, actual.height);
+				for (int y = 0; y < expected.height; y++) { 
+					for (int x = 0; x < expected.width; x++) { 
+						assertEquals(expected.getPixel(x, y), actual.getPixel(x, y));
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testGrid() throws Exception {
+		BinaryQRCodeWriter writer = new BinaryQRCodeWriter();
+		
+		BitMatrix[] matrices = writer.encodeStructuredAppend(new byte[7000], 101, 101, null);
+		assertEquals(3, matrices.length);
+		
+		ImageData actual = ImageDataUtil.toImageData(matrices, 2);
+		
+		// cells are padded to whole bytes
+		int cellWidth = (matrices[0].getWidth() + 7) & ~7;
+		int cellHeight = matrices[0].getHeight();
+		assertEquals(cellWidth * 2, actual.width);
+		assertEquals(cellHeight * 2, actual.height);
+		
+		for(int i = 0; i < matrices.length; i++) {
+			ImageData expected = toImageDataPerPixel(matrices[i]);
+			
+			int left = (i % 2) * cellWidth;
+			int top = (i / 2) * cellHeight;
+			for (int y = 0; y < expected.height; y++) { 
+				for (int x = 0; x < expected.width; x++) { 
+					assertEquals(expected.getPixel(x, y), actual.getPixel(left + x, top + y));
+				}
+			}
+		}
+	}
+	
+	private static ImageData toImageDataPerPixel(BitMatrix matrix) {
+		int width = matrix.getWidth(); 
+		int height = matrix.getHeight(); 
+
+		ImageData imageData = new ImageData(width, height, 1, new PaletteData(new RGB[]{new RGB(0xFF, 0xFF, 0xFF), new RGB(0x00, 0x00, 0x00)}));
+		for (int y = 0; y < height; y++) { 
+			for (int x = 0; x < width; x++) { 
+				int grayValue = matrix.get(x, y) ? 0 : 0xff; 
+				imageData.setPixel(x, y, (grayValue != 0 ? 0 : 0xFFFFFF));
+			}
+		}
+		return imageData;
+	}
+}
@@ -0,0 +1,262 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.nfc.eclipse.plugin.model.NdefRecordModelNode;
+import org.nfc.eclipse.plugin.model.NdefRecordModelParent;
+import org.nfc.eclipse.plugin.operation.NdefModelChange;
+import org.nfc.eclipse.plugin.operation.NdefModelChangeOperation;
+import org.nfc.eclipse.plugin.operation.NdefModelMergeableOperation;
+import org.nfc.eclipse.plugin.operation.NdefModelMergedOperation;
+import org.nfc.eclipse.plugin.operation.NdefModelOperation;
+
+public class TestNdefModelMerge {
+
+	/**
+	 * 
+	 * Operation which depends on the state left by the previous operation, like an edit which also adds or removes 
+	 * other properties of the record. Revoking it out of order fails.
+	 * 
+	 */
+	
+	private static class StackOperation implements NdefModelMergeableOperation, NdefModelChangeOperation {
+		
+		private List<String> stack;
+		private String value;
+		private NdefRecordModelNode node;
+		
+		public StackOperation(List<String> stack, String value) {
+			this(stack, value, null);
+		}
+		
+		public StackOperation(List<String> stack, String value, NdefRecordModelNode node) {
+			this.stack = stack;
+			this.value = value;
+			this.node = node;
+		}
+
+		@Override
+		public void execute() {
+			stack.add(value);
+		}
+
+		@Override
+		public void revoke() {
+			String last = stack.remove(stack.size() - 1);
+			if(!last.equals(value)) {
+				throw new IllegalStateException("Revoked " + value + " but was " + last);
+			}
+		}
+
+		@Override
+		public boolean canMerge(NdefModelOperation operation) {
+			return operation instanceof StackOperation && ((StackOperation)operation).stack == stack;
+		}
+
+		@Override
+		public NdefModelMergeableOperation collapse(NdefModelOperation operation) {
+			return null;
+		}
+
+		@Override
+		public void getChanges(NdefModelChange change, boolean revoked) {
+			if(node != null) {
+				change.refresh(node);
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * Operation which sets an absolute value, so that consecutive operations can be collapsed.
+	 * 
+	 */
+	
+	private static class ValueOperation implements NdefModelMergeableOperation {
+		
+		private String[] target;
+		private String previous;
+		private String next;
+		
+		public ValueOperation(String[] target, String previous, String next) {
+			this.target = target;
+			this.previous = previous;
+			this.next = next;
+		}
+
+		@Override
+		public void execute() {
+			target[0] = next;
+		}
+
+		@Override
+		public void revoke() {
+			target[0] = previous;
+		}
+
+		@Override
+		public boolean canMerge(NdefModelOperation operation) {
+			return operation instanceof ValueOperation && ((ValueOperation)operation).target == target;
+		}
+
+		@Override
+		public NdefModelMergeableOperation collapse(NdefModelOperation operation) {
+			return new ValueOperation(target, previous, ((ValueOperation)operation).next);
+		}
+	}
+	
+	private static NdefModelOperator createOperator() {
+		NdefModelOperator operator = new NdefModelOperator(null);
+		operator.newModel();
+		operator.setMergeWindow(60 * 1000);
+		
+		return operator;
+	}
+	
+	@Test
+	public void testMergeUndoRedo() {
+		NdefModelOperator operator = createOperator();
+		
+		List<String> stack = new ArrayList<String>();
+		
+		operator.update(operator.getModel(), new StackOperation(stack, "WellKnown"));
+		operator.update(operator.getModel(), new StackOperation(stack, "Media"));
+		operator.update(operator.getModel(), new StackOperation(stack, "WellKnown"));
+		
+		assertEquals(Arrays.asList("WellKnown", "Media", "WellKnown"), stack);
+		
+		// one undo step reverts all the merged edits
+		operator.undo();
+		
+		assertTrue(stack.isEmpty());
+		assertFalse(operator.canUndo());
+		assertTrue(operator.canRedo());
+		
+		operator.redo();
+		
+		assertEquals(Arrays.asList("WellKnown", "Media", "WellKnown"), stack);
+		assertTrue(operator.canUndo());
+		assertFalse(operator.canRedo());
+		
+		operator.undo();
+		
+		assertTrue(stack.isEmpty());
+	}
+	
+	@Test
+	public void testNoMerge() {
+		NdefModelOperator operator = createOperator();
+		
+		List<String> first = new ArrayList<String>();
+		List<String> second = new ArrayList<String>();
+		
+		operator.update(operator.getModel(), new StackOperation(first, "a"));
+		operator.update(operator.getModel(), new StackOperation(second, "b"));
+		
+		// edits of different targets are separate steps
+		operator.undo();
+		
+		assertEquals(Arrays.asList("a"), first);
+		assertTrue(second.isEmpty());
+		
+		operator.undo();
+		
+		assertTrue(first.isEmpty());
+		assertFalse(operator.canUndo());
+	}
+	
+	@Test
+	public void testMergeWindowDisabled() {
+		NdefModelOperator operator = createOperator();
+		operator.setMergeWindow(0);
+		
+		List<String> stack = new ArrayList<String>();
+		
+		operator.update(operator.getModel(), new StackOperation(stack, "a"));
+		operator.update(operator.getModel(), new StackOperation(stack, "b"));
+		
+		operator.undo();
+		
+		assertEquals(Arrays.asList("a"), stack);
+		
+		operator.undo();
+		
+		assertTrue(stack.isEmpty());
+	}
+	
+	@Test
+	public void testCollapse() {
+		String[] target = new String[]{"a"};
+		
+		NdefModelMergedOperation merged = NdefModelMergedOperation.merge(new ValueOperation(target, "a", "b"), new ValueOperation(target, "b", "c"));
+		merged = NdefModelMergedOperation.merge(merged, new ValueOperation(target, "c", "d"));
+		
+		// only the first previous and last next value are kept
+		assertEquals(1, merged.getCount());
+		
+		merged.execute();
+		assertEquals("d", target[0]);
+		
+		merged.revoke();
+		assertEquals("a", target[0]);
+	}
+	
+	@Test
+	public void testNoCollapse() {
+		List<String> stack = new ArrayList<String>();
+		
+		NdefModelMergedOperation merged = NdefModelMergedOperation.merge(new StackOperation(stack, "a"), new StackOperation(stack, "b"));
+		merged = NdefModelMergedOperation.merge(merged, new StackOperation(stack, "c"));
+		
+		assertEquals(3, merged.getCount());
+	}
+	
+	@Test
+	public void testChangesReportedOnce() {
+		NdefRecordModelParent node = new NdefRecordModelParent();
+		
+		List<String> stack = new ArrayList<String>();
+		
+		NdefModelMergedOperation merged = NdefModelMergedOperation.merge(new StackOperation(stack, "a", node), new StackOperation(stack, "b", node));
+		for(int i = 0; i < 18; i++) {
+			merged = NdefModelMergedOperation.merge(merged, new StackOperation(stack, "c" + i, node));
+		}
+		
+		assertEquals(1, NdefModelChange.getChange(merged, false).getRefreshed().size());
+		assertEquals(1, NdefModelChange.getChange(merged, true).getRefreshed().size());
+	}
+}
@@ -0,0 +1,230 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+package org.nfc.eclipse.plugin.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+import org.nfc.eclipse.plugin.NdefRecordFactory;
+import org.nfctools.ndef.NdefContext;
+import org.nfctools.ndef.Record;
+import org.nfctools.ndef.wkt.records.TextRecord;
+import org.nfctools.ndef.wkt.records.UriRecord;
+
+public class TestNdefBatch {
+
+	private static NdefBatchEdits load(String xml) throws IOException {
+		return NdefBatchEdits.load(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+	}
+	
+	@Test
+	public void testEdits() throws Exception {
+		NdefBatchEdits edits = load(
+				"<edits>" +
+				"  <clear/>" +
+				"  <add type=\"UriRecord\">" +
+				"    <property name=\"uri\" value=\"http://a\"/>" +
+				"  </add>" +
+				"  <add type=\"org.nfctools.ndef.wkt.records.TextRecord\" index=\"0\">" +
+				"    <property name=\"text\" value=\"hello\"/>" +
+				"    <property name=\"locale\" value=\"en_US\"/>" +
+				"  </add>" +
+				"  <add type=\"UriRecord\">" +
+				"    <property name=\"uri\" value=\"http://b\"/>" +
+				"  </add>" +
+				"  <set index=\"-1\" name=\"uri\" value=\"http://c\"/>" +
+				"  <move from=\"0\" to=\"-1\"/>" +
+				"  <remove index=\"0\"/>" +
+				"</edits>");
+		
+		assertEquals(7, edits.size());
+		
+		List<Record> records = new ArrayList<Record>();
+		records.add(new UriRecord("http://old"));
+		
+		edits.apply(records, new NdefRecordFactory());
+		
+		assertEquals(2, records.size());
+		assertEquals("http://c", ((UriRecord)records.get(0)).getUri());
+		
+		TextRecord textRecord = (TextRecord)records.get(1);
+		assertEquals("hello", textRecord.getText());
+		assertEquals(new Locale("en", "US"), textRecord.getLocale());
+	}
+
+	@Test
+	public void testInvalidXml() throws Exception {
+		String[] invalid = new String[]{
+				"<other/>",
+				"<edits><add type=\"NoSuchRecord\"/></edits>",
+				"<edits><remove/></edits>",
+				"<edits><remove index=\"first\"/></edits>",
+				"<edits><unknown/></edits>",
+				"<edits><add type=\"UriRecord\"><value/></add></edits>",
+		};
+		
+		for(String xml : invalid) {
+			try {
+				load(xml);
+				
+				fail(xml);
+			} catch(IOException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testInvalidEdits() throws Exception {
+		String[] invalid = new String[]{
+				"<edits><remove index=\"1\"/></edits>",
+				"<edits><remove index=\"-2\"/></edits>",
+				"<edits><set index=\"0\" name=\"noSuchProperty\" value=\"x\"/></edits>",
+		};
+		
+		for(String xml : invalid) {
+			NdefBatchEdits edits = load(xml);
+			
+			List<Record> records = new ArrayList<Record>();
+			records.add(new UriRecord("http://a"));
+			
+			try {
+				edits.apply(records, new NdefRecordFactory());
+				
+				fail(xml);
+			} catch(IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+	
+	@Test
+	public void testCompile() throws Exception {
+		File directory = File.createTempFile("batch", "");
+		directory.delete();
+		File input = new File(directory, "input");
+		File output = new File(directory, "output");
+		input.mkdirs();
+		output.mkdirs();
+		
+		try {
+			File[] files = new File[3];
+			for(int i = 0; i < files.length; i++) {
+				files[i] = new File(input, "tag" + i + ".ndef");
+				
+				List<Record> records = new ArrayList<Record>();
+				records.add(new UriRecord("http://tag" + i));
+				write(files[i], NdefContext.getNdefMessageEncoder().encode(records));
+			}
+			// not an NDEF message
+			write(files[2], new byte[]{1, 2, 3});
+
+			NdefBatchEdits edits = load(
+					"<edits>" +
+					"  <add type=\"UriRecord\" index=\"0\">" +
+					"    <property name=\"uri\" value=\"http://first\"/>" +
+					"  </add>" +
+					"</edits>");
+			
+			NdefBatchCompiler compiler = new NdefBatchCompiler(edits, 2);
+			List<NdefBatchCompiler.Result> results;
+			try {
+				results = compiler.compile(files, output);
+			} finally {
+				compiler.shutdown();
+			}
+			
+			assertEquals(files.length, results.size());
+			for(int i = 0; i < 2; i++) {
+				NdefBatchCompiler.Result result = results.get(i);
+				
+				assertEquals(files[i], result.getFile());
+				assertNull(result.getException());
+				
+				File file = new File(output, files[i].getName());
+				assertEquals(file.length(), result.getBytes());
+				
+				List<Record> records = NdefContext.getNdefMessageDecoder().decodeToRecords(read(file));
+				assertEquals(2, records.size());
+				assertEquals("http://first", ((UriRecord)records.get(0)).getUri());
+				assertEquals("http://tag" + i, ((UriRecord)records.get(1)).getUri());
+			}
+			assertNotNull(results.get(2).getException());
+		} finally {
+			for(File directoryFile : new File[]{input, output}) {
+				File[] files = directoryFile.listFiles();
+				if(files != null) {
+					for(File file : files) {
+						file.delete();
+					}
+				}
+				directoryFile.delete();
+			}
+			directory.delete();
+		}
+	}
+	
+	private static void write(File file, byte[] bytes) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static byte[] read(File file) throws IOException {
+		byte[] bytes = new byte[(int)file.length()];
+		InputStream in = new FileInputStream(file);
+		try {
+			int offset = 0;
+			while(offset < bytes.length) {
+				int count = in.read(bytes, offset, bytes.length - offset);
+				if(count == -1) {
+					throw new IOException("Unexpected end of " + file);
+				}
+				offset += count;
+			}
+		} finally {
+			in.close();
+		}
+		return bytes;
+	}
+}
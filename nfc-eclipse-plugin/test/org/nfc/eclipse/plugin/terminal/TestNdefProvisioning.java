@@ -0,0 +1,217 @@
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+package org.nfc.eclipse.plugin.terminal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.nfc.eclipse.plugin.terminal.NdefProvisioning.Message;
+import org.nfc.eclipse.plugin.terminal.NdefProvisioning.Result;
+import org.nfctools.ndef.wkt.records.UriRecord;
+
+public class TestNdefProvisioning {
+
+	private static final int CAPACITY = 1024;
+	
+	private static NdefProvisioning create() {
+		return NdefProvisioning.fromUris(Arrays.asList("http://a", "http://b", "http://c"));
+	}
+	
+	@Test
+	public void testNext() {
+		NdefProvisioning provisioning = create();
+		
+		assertEquals(3, provisioning.getTotal());
+		assertEquals(3, provisioning.getRemaining());
+		
+		Message message = provisioning.next("01", CAPACITY);
+		assertNotNull(message);
+		assertEquals(0, message.getIndex());
+		assertEquals("http://a", ((UriRecord)message.getRecords()[0]).getUri());
+		assertTrue(message.getEncoded().length > 0);
+		
+		assertEquals(2, provisioning.getRemaining());
+		
+		assertEquals(1, provisioning.next("02", CAPACITY).getIndex());
+		assertEquals(2, provisioning.next(null, CAPACITY).getIndex());
+		
+		assertNull(provisioning.next("03", CAPACITY));
+		assertTrue(provisioning.isComplete());
+	}
+	
+	@Test
+	public void testSucceeded() {
+		NdefProvisioning provisioning = create();
+		
+		Message message = provisioning.next("01", CAPACITY);
+		provisioning.succeeded("01", message);
+		
+		assertEquals(1, provisioning.getWritten());
+		assertTrue(provisioning.isProvisioned("01"));
+		
+		List<Result> results = provisioning.getResults();
+		assertEquals(1, results.size());
+		
+		Result result = results.get(0);
+		assertEquals("01", result.getTagId());
+		assertEquals(0, result.getIndex());
+		assertEquals(1, result.getAttempt());
+		assertNull(result.getException());
+	}
+	
+	@Test
+	public void testDeduplicate() {
+		NdefProvisioning provisioning = create();
+		
+		provisioning.succeeded("01", provisioning.next("01", CAPACITY));
+		
+		// presenting the same tag again does not consume a message
+		assertNull(provisioning.next("01", CAPACITY));
+		assertEquals(2, provisioning.getRemaining());
+		
+		assertEquals(1, provisioning.next("02", CAPACITY).getIndex());
+	}
+	
+	@Test
+	public void testFailed() {
+		NdefProvisioning provisioning = create();
+		
+		Message message = provisioning.next("01", CAPACITY);
+		provisioning.failed("01", message, new RuntimeException());
+		
+		assertEquals(1, provisioning.getFailed());
+		assertFalse(provisioning.isProvisioned("01"));
+		assertEquals(3, provisioning.getRemaining());
+		
+		// the message is written to the next tag
+		Message retry = provisioning.next("02", CAPACITY);
+		assertSame(message, retry);
+		
+		provisioning.succeeded("02", retry);
+		
+		assertTrue(provisioning.isProvisioned("02"));
+		assertEquals(1, provisioning.getWritten());
+	}
+	
+	@Test
+	public void testRejected() {
+		NdefProvisioning provisioning = create();
+		provisioning.setMaxAttempts(2);
+		
+		provisioning.failed("01", provisioning.next("01", CAPACITY), new RuntimeException());
+		assertFalse(provisioning.isRejected("01"));
+		
+		provisioning.failed("01", provisioning.next("01", CAPACITY), new RuntimeException());
+		assertTrue(provisioning.isRejected("01"));
+		assertEquals(1, provisioning.getRejected());
+		
+		// a bad tag does not use up the message
+		assertNull(provisioning.next("01", CAPACITY));
+		assertEquals(3, provisioning.getRemaining());
+		
+		Message message = provisioning.next("02", CAPACITY);
+		assertEquals(0, message.getIndex());
+		
+		provisioning.succeeded("02", message);
+		
+		List<Result> results = provisioning.getResults();
+		assertEquals(2, results.size());
+		assertEquals(2, results.get(0).getAttempt());
+		assertNotNull(results.get(0).getException());
+		assertEquals(1, results.get(1).getAttempt());
+	}
+	
+	@Test
+	public void testOversized() {
+		StringBuilder uri = new StringBuilder("http://");
+		for(int i = 0; i < 2 * CAPACITY; i++) {
+			uri.append('a');
+		}
+		
+		NdefProvisioning provisioning = NdefProvisioning.fromUris(Arrays.asList(uri.toString(), "http://b"));
+		
+		// the oversized message is skipped, without being charged to the tag
+		Message message = provisioning.next("01", CAPACITY);
+		assertEquals(1, message.getIndex());
+		
+		provisioning.succeeded("01", message);
+		
+		assertNull(provisioning.next("02", CAPACITY));
+		assertFalse(provisioning.isRejected("02"));
+		assertFalse(provisioning.isComplete());
+		assertEquals(1, provisioning.getRemaining());
+		
+		// a larger tag gets it
+		message = provisioning.next("03", 4 * CAPACITY);
+		assertEquals(0, message.getIndex());
+	}
+	
+	@Test
+	public void testAbandoned() {
+		NdefProvisioning provisioning = create();
+		provisioning.setMaxMessageFailures(3);
+		
+		// the same message fails on different tags
+		for(int i = 0; i < 3; i++) {
+			Message message = provisioning.next("0" + i, CAPACITY);
+			assertEquals(0, message.getIndex());
+			
+			provisioning.failed("0" + i, message, new RuntimeException());
+			
+			assertFalse(provisioning.isRejected("0" + i));
+		}
+		
+		List<Message> abandoned = provisioning.getAbandoned();
+		assertEquals(1, abandoned.size());
+		assertEquals(0, abandoned.get(0).getIndex());
+		
+		// the run continues with the next message
+		assertEquals(2, provisioning.getRemaining());
+		assertEquals(1, provisioning.next("03", CAPACITY).getIndex());
+	}
+	
+	@Test
+	public void testAbandonedUnknownTags() {
+		NdefProvisioning provisioning = create();
+		provisioning.setMaxMessageFailures(2);
+		
+		provisioning.failed(null, provisioning.next(null, CAPACITY), new RuntimeException());
+		provisioning.failed(null, provisioning.next(null, CAPACITY), new RuntimeException());
+		
+		assertEquals(1, provisioning.getAbandoned().size());
+		assertEquals(1, provisioning.next(null, CAPACITY).getIndex());
+	}
+}
@@ -9,6 +9,8 @@ import com.google.zxing.common.DetectorResult;
 import com.google.zxing.qrcode.decoder.Decoder;
 import com.google.zxing.qrcode.detector.Detector;
 
+import java.util.Collection;
+
 /**
  * This implementation can detect and decode QR Codes in an image into bytes.
  *
@@ -31,11 +33,71 @@ public class BinaryQRCodeReader{
    * @throws ChecksumException if error correction fails
    */
   public byte[] decode(BinaryBitmap image) throws NotFoundException, ChecksumException, FormatException {
+      return decodeResult(image).getRawBytes();
+  }
+
+  /**
+   * Locates and decodes a QR code in an image, keeping Structured Append metadata.
+   *
+   * @return the result, with content as raw bytes
+   * @throws NotFoundException if a QR code cannot be found
+   * @throws FormatException if a QR code cannot be decoded
+   * @throws ChecksumException if error correction fails
+   */
+  public DecoderResult decodeResult(BinaryBitmap image) throws NotFoundException, ChecksumException, FormatException {
       DetectorResult detectorResult = new Detector(image.getBlackMatrix()).detect();
 
-      DecoderResult decode = decoder.decode(detectorResult.getBits());
-      
-      return decode.getRawBytes();
+      return decoder.decode(detectorResult.getBits());
+  }
+
+  /**
+   * Reassemble the content of a Structured Append sequence.
+   *
+   * @param results all symbols of the sequence, in any order
+   * @return the content
+   * @throws FormatException if symbols are missing, duplicated, from different sequences or the parity does not match
+   */
+  public static byte[] merge(Collection<DecoderResult> results) throws FormatException {
+      DecoderResult[] sequence = null;
+      int parity = -1;
+      int length = 0;
+      for (DecoderResult result : results) {
+        if (!result.hasStructuredAppend()) {
+          throw FormatException.getFormatInstance();
+        }
+        int total = (result.getStructuredAppendSequenceNumber() & 0x0F) + 1;
+        int index = result.getStructuredAppendSequenceNumber() >> 4;
+        if (sequence == null) {
+          sequence = new DecoderResult[total];
+          parity = result.getStructuredAppendParity();
+        } else if (sequence.length != total || parity != result.getStructuredAppendParity()) {
+          throw FormatException.getFormatInstance();
+        }
+        if (index >= total || sequence[index] != null) {
+          throw FormatException.getFormatInstance();
+        }
+        sequence[index] = result;
+        length += result.getRawBytes().length;
+      }
+      if (sequence == null || results.size() != sequence.length) {
+        throw FormatException.getFormatInstance();
+      }
+
+      byte[] content = new byte[length];
+      int offset = 0;
+      int check = 0;
+      for (DecoderResult result : sequence) {
+        byte[] bytes = result.getRawBytes();
+        for (byte b : bytes) {
+          check ^= b;
+        }
+        System.arraycopy(bytes, 0, content, offset, bytes.length);
+        offset += bytes.length;
+      }
+      if ((check & 0xFF) != parity) {
+        throw FormatException.getFormatInstance();
+      }
+      return content;
   }
 
   public void reset() {
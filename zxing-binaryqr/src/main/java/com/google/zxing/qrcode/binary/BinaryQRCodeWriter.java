@@ -23,6 +23,11 @@ public final class BinaryQRCodeWriter {
   private int horizontalAligment = 0;
   private int verticalAligment = 0;
   
+  private QRCodeCache cache;
+  
+  private int maskPattern = Encoder.MASK_PATTERN_SEARCH;
+  private boolean parallelMaskSearch = false;
+  
   public void setAligment(int horizontal, int vertical) {
 	  this.horizontalAligment = horizontal;
 	  this.verticalAligment = vertical;
@@ -36,6 +41,47 @@ public final class BinaryQRCodeWriter {
 	  this.verticalAligment = vertical;
   }
 
+  /**
+   * Use a cache of encoded codes, so that re-encoding the same contents only scales the cached matrix.
+   *
+   * @param cache cache, or null for no caching
+   */
+  public void setCache(QRCodeCache cache) {
+	  this.cache = cache;
+  }
+
+  public QRCodeCache getCache() {
+	  return cache;
+  }
+
+  /**
+   * Use a fixed mask pattern instead of searching for the one with the lowest penalty. Faster, but
+   * the code might be harder to scan. Codes with a fixed mask pattern are not cached.
+   *
+   * @param maskPattern mask pattern 0-7, or {@link Encoder#MASK_PATTERN_SEARCH}
+   */
+  public void setMaskPattern(int maskPattern) {
+	  if (maskPattern != Encoder.MASK_PATTERN_SEARCH && !QRCode.isValidMaskPattern(maskPattern)) {
+		  throw new IllegalArgumentException("Invalid mask pattern " + maskPattern);
+	  }
+	  this.maskPattern = maskPattern;
+  }
+
+  public int getMaskPattern() {
+	  return maskPattern;
+  }
+
+  /**
+   * Score the mask patterns concurrently. Gives the same codes as the sequential search.
+   */
+  public void setParallelMaskSearch(boolean parallelMaskSearch) {
+	  this.parallelMaskSearch = parallelMaskSearch;
+  }
+
+  public boolean isParallelMaskSearch() {
+	  return parallelMaskSearch;
+  }
+
   public BitMatrix encode(byte[] contents, BarcodeFormat format, int width, int height)
       throws WriterException {
 
@@ -71,10 +117,80 @@ public final class BinaryQRCodeWriter {
       }
     }
 
-    QRCode code = Encoder.encode(contents, errorCorrectionLevel, hints);
+    QRCode code;
+    if (cache != null && maskPattern == Encoder.MASK_PATTERN_SEARCH && isCacheable(hints)) {
+      code = cache.get(contents, errorCorrectionLevel);
+      if (code == null) {
+        code = Encoder.encode(contents, errorCorrectionLevel, hints, maskPattern, parallelMaskSearch);
+        cache.put(contents, errorCorrectionLevel, code);
+      }
+    } else {
+      code = Encoder.encode(contents, errorCorrectionLevel, hints, maskPattern, parallelMaskSearch);
+    }
     return renderResult(code, width, height);
   }
 
+  /**
+   * Split contents across a Structured Append sequence of up to 16 symbols, for contents which
+   * do not fit in a single symbol. The contents are spread evenly so that the symbols have similar size.
+   *
+   * @return the symbols, in sequence order
+   */
+  public BitMatrix[] encodeStructuredAppend(byte[] contents,
+                                            int width,
+                                            int height,
+                                            Map<EncodeHintType,?> hints) throws WriterException {
+
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Requested dimensions are too small: " + width + 'x' +
+          height);
+    }
+
+    ErrorCorrectionLevel errorCorrectionLevel = ErrorCorrectionLevel.L;
+    if (hints != null) {
+      ErrorCorrectionLevel requestedECLevel = (ErrorCorrectionLevel) hints.get(EncodeHintType.ERROR_CORRECTION);
+      if (requestedECLevel != null) {
+        errorCorrectionLevel = requestedECLevel;
+      }
+    }
+
+    int total = QRCodeCapacity.getStructuredAppendSymbols(contents.length, errorCorrectionLevel);
+    if (total == -1) {
+      throw new WriterException("Data too big for " + QRCodeCapacity.MAX_STRUCTURED_APPEND_SYMBOLS + " symbols");
+    }
+
+    int parity = 0;
+    for (byte b : contents) {
+      parity ^= b;
+    }
+
+    int chunk = (contents.length + total - 1) / total;
+
+    BitMatrix[] matrices = new BitMatrix[total];
+    for (int i = 0; i < total; i++) {
+      int offset = Math.min(i * chunk, contents.length);
+      int length = Math.min(chunk, contents.length - offset);
+
+      QRCode code = Encoder.encodeStructuredAppend(contents, offset, length, i, total, parity, errorCorrectionLevel, hints, maskPattern, parallelMaskSearch);
+
+      matrices[i] = renderResult(code, width, height);
+    }
+    return matrices;
+  }
+
+  // The cache is keyed on contents and error correction level only, so any other hint disables it.
+  private static boolean isCacheable(Map<EncodeHintType,?> hints) {
+    if (hints == null) {
+      return true;
+    }
+    for (EncodeHintType hint : hints.keySet()) {
+      if (hint != EncodeHintType.ERROR_CORRECTION) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   // Note that the input matrix uses 0 == white, 1 == black, while the output matrix uses
   // 0 == black, 255 == white (i.e. an 8 bit greyscale bitmap).
   private BitMatrix renderResult(QRCode code, int width, int height) {
@@ -0,0 +1,122 @@
+package com.google.zxing.qrcode.binary;
+
+import java.util.Random;
+
+/**
+ * Luby transform (LT) fountain code shared by {@link FountainEncoder} and {@link FountainDecoder}.
+ * Content is split into blocks, and each frame carries the XOR of a pseudo-random set of blocks
+ * derived from the frame seed. Frames with seeds below the block count carry a single block each,
+ * so that a receiver which sees every frame in order needs no decoding at all. Higher seeds follow
+ * the robust soliton degree distribution, so that any large enough set of frames reconstructs the
+ * content.
+ *
+ * <p>Frame layout: content length (4 bytes), content CRC32 (4 bytes), block size (2 bytes),
+ * seed (4 bytes) and block size bytes of data.</p>
+ *
+ * @author Thomas Skjolberg
+ */
+final class FountainCode {
+
+  static final int HEADER_SIZE = 4 + 4 + 2 + 4;
+
+  static final int MAX_BLOCK_SIZE = 0xFFFF;
+
+  /** upper bound on blocks per content, so that a decoder can size its state from a frame header */
+  static final int MAX_BLOCK_COUNT = 0x10000;
+
+  // robust soliton parameters
+  private static final double C = 0.03;
+  private static final double DELTA = 0.5;
+
+  private final int blockCount;
+
+  /** cumulative degree distribution, index is degree - 1 */
+  private final double[] distribution;
+
+  /** scratch for block selection */
+  private final int[] indexes;
+
+  FountainCode(int blockCount) {
+    this.blockCount = blockCount;
+    this.distribution = robustSoliton(blockCount);
+    this.indexes = new int[blockCount];
+  }
+
+  int getBlockCount() {
+    return blockCount;
+  }
+
+  /**
+   * @return the blocks combined in the frame with the given seed
+   */
+  int[] getBlocks(int seed) {
+    if (seed < blockCount) {
+      return new int[] {seed};
+    }
+    // consecutive seeds give correlated first values from java.util.Random, so mix them first
+    Random random = new Random(mix(seed));
+
+    double p = random.nextDouble();
+    int degree = 1;
+    while (degree < blockCount && distribution[degree - 1] < p) {
+      degree++;
+    }
+
+    // partial Fisher-Yates shuffle
+    for (int i = 0; i < blockCount; i++) {
+      indexes[i] = i;
+    }
+    int[] blocks = new int[degree];
+    for (int i = 0; i < degree; i++) {
+      int j = i + random.nextInt(blockCount - i);
+      int swap = indexes[j];
+      indexes[j] = indexes[i];
+      indexes[i] = swap;
+
+      blocks[i] = swap;
+    }
+    return blocks;
+  }
+
+  // finalizer of the SplitMix64 generator
+  private static long mix(long seed) {
+    long z = seed * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static double[] robustSoliton(int k) {
+    double[] mu = new double[k];
+
+    double r = C * Math.log(k / DELTA) * Math.sqrt(k);
+    int pivot = r > 0 ? (int) Math.max(1, Math.min(k, Math.floor(k / r))) : k;
+
+    double sum = 0;
+    for (int d = 1; d <= k; d++) {
+      // ideal soliton
+      double p = d == 1 ? 1.0 / k : 1.0 / (d * (double) (d - 1));
+
+      // robust part
+      if (r > 0) {
+        if (d < pivot) {
+          p += r / (d * (double) k);
+        } else if (d == pivot) {
+          p += r * Math.log(r / DELTA) / k;
+        }
+      }
+      mu[d - 1] = Math.max(0, p);
+      sum += mu[d - 1];
+    }
+
+    double cumulative = 0;
+    for (int d = 0; d < k; d++) {
+      cumulative += mu[d] / sum;
+      mu[d] = cumulative;
+    }
+    mu[k - 1] = 1.0;
+
+    return mu;
+  }
+
+}
@@ -0,0 +1,247 @@
+package com.google.zxing.qrcode.binary;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.FormatException;
+import com.google.zxing.NotFoundException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Reassembles content from fountain coded frames produced by {@link FountainEncoder}, in any
+ * order and with any frames missing, by peeling: a frame combining a single unknown block reveals
+ * that block, which is then removed from all other frames.
+ *
+ * @author Thomas Skjolberg
+ */
+public final class FountainDecoder {
+
+  private static final class Equation {
+
+    private final int[] blocks;
+    private final byte[] data;
+    private int unknown;
+
+    Equation(int[] blocks, byte[] data, int unknown) {
+      this.blocks = blocks;
+      this.data = data;
+      this.unknown = unknown;
+    }
+  }
+
+  private final BinaryQRCodeReader reader = new BinaryQRCodeReader();
+
+  private int length = -1;
+  private int checksum;
+  private int blockSize;
+  private FountainCode code;
+
+  private byte[][] blocks;
+  private int recovered;
+  private List<List<Equation>> waiting;
+  private final Set<Integer> seeds = new HashSet<Integer>();
+
+  private int frames;
+  private byte[] content;
+
+  /**
+   * Locate, decode and add a frame in an image.
+   *
+   * @return true if the content is complete
+   */
+  public boolean add(BinaryBitmap image) throws NotFoundException, ChecksumException, FormatException {
+    return add(reader.decode(image));
+  }
+
+  /**
+   * Add a frame. A frame of other content than the previous frames restarts decoding.
+   *
+   * @return true if the content is complete
+   * @throws FormatException if the frame is malformed or declares more blocks than an encoder produces,
+   *         or the decoded content does not match its checksum
+   */
+  public boolean add(byte[] frame) throws FormatException {
+    if (frame.length < FountainCode.HEADER_SIZE) {
+      throw FormatException.getFormatInstance();
+    }
+    int frameLength = readInt(frame, 0);
+    int frameChecksum = readInt(frame, 4);
+    int frameBlockSize = ((frame[8] & 0xFF) << 8) | (frame[9] & 0xFF);
+    int seed = readInt(frame, 10);
+
+    if (frameLength < 0 || frameBlockSize == 0 || seed < 0 || frame.length < FountainCode.HEADER_SIZE + frameBlockSize) {
+      throw FormatException.getFormatInstance();
+    }
+
+    if (frameLength != length || frameChecksum != checksum || frameBlockSize != blockSize) {
+      // the header is untrusted, check before sizing the decoder state from it
+      if (getBlockCount(frameLength, frameBlockSize) > FountainCode.MAX_BLOCK_COUNT) {
+        throw FormatException.getFormatInstance();
+      }
+      reset(frameLength, frameChecksum, frameBlockSize);
+    }
+    frames++;
+
+    if (content != null || !seeds.add(seed)) {
+      return content != null;
+    }
+
+    byte[] data = new byte[blockSize];
+    System.arraycopy(frame, FountainCode.HEADER_SIZE, data, 0, blockSize);
+
+    // remove known blocks
+    int[] frameBlocks = code.getBlocks(seed);
+    int unknown = 0;
+    int last = -1;
+    for (int block : frameBlocks) {
+      if (blocks[block] != null) {
+        xor(blocks[block], data);
+      } else {
+        unknown++;
+        last = block;
+      }
+    }
+
+    if (unknown == 1) {
+      recover(last, data);
+    } else if (unknown > 1) {
+      Equation equation = new Equation(frameBlocks, data, unknown);
+      for (int block : frameBlocks) {
+        if (blocks[block] == null) {
+          waiting.get(block).add(equation);
+        }
+      }
+    }
+
+    if (recovered == blocks.length) {
+      content = assemble();
+      return true;
+    }
+    return false;
+  }
+
+  public boolean isComplete() {
+    return content != null;
+  }
+
+  /**
+   * @return the content, or null if not complete
+   */
+  public byte[] getContent() {
+    return content;
+  }
+
+  /**
+   * @return number of frames added for the current content, including duplicates
+   */
+  public int getFrames() {
+    return frames;
+  }
+
+  /**
+   * @return number of blocks in the current content, or -1 if no frames are added
+   */
+  public int getBlockCount() {
+    return code != null ? code.getBlockCount() : -1;
+  }
+
+  /**
+   * @return number of blocks decoded so far
+   */
+  public int getRecoveredBlockCount() {
+    return recovered;
+  }
+
+  private void reset(int length, int checksum, int blockSize) {
+    this.length = length;
+    this.checksum = checksum;
+    this.blockSize = blockSize;
+
+    int blockCount = (int) getBlockCount(length, blockSize);
+    this.code = new FountainCode(blockCount);
+    this.blocks = new byte[blockCount][];
+    this.waiting = new ArrayList<List<Equation>>(blockCount);
+    for (int i = 0; i < blockCount; i++) {
+      waiting.add(new ArrayList<Equation>(2));
+    }
+    this.recovered = 0;
+    this.seeds.clear();
+    this.frames = 0;
+    this.content = null;
+  }
+
+  private void recover(int block, byte[] data) {
+    List<Integer> pending = new ArrayList<Integer>();
+    List<byte[]> pendingData = new ArrayList<byte[]>();
+    pending.add(block);
+    pendingData.add(data);
+
+    while (!pending.isEmpty()) {
+      int index = pending.remove(pending.size() - 1);
+      byte[] value = pendingData.remove(pendingData.size() - 1);
+      if (blocks[index] != null) {
+        continue;
+      }
+      blocks[index] = value;
+      recovered++;
+
+      for (Equation equation : waiting.get(index)) {
+        if (equation.unknown == 0) {
+          continue;
+        }
+        xor(value, equation.data);
+        equation.unknown--;
+
+        if (equation.unknown == 1) {
+          for (int other : equation.blocks) {
+            if (blocks[other] == null && other != index) {
+              equation.unknown = 0;
+
+              pending.add(other);
+              pendingData.add(equation.data);
+              break;
+            }
+          }
+        }
+      }
+      waiting.set(index, null);
+    }
+  }
+
+  private byte[] assemble() throws FormatException {
+    byte[] result = new byte[length];
+    for (int i = 0; i < blocks.length; i++) {
+      int offset = i * blockSize;
+      System.arraycopy(blocks[i], 0, result, offset, Math.min(blockSize, length - offset));
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(result);
+    if ((int) crc.getValue() != checksum) {
+      reset(length, checksum, blockSize);
+
+      throw FormatException.getFormatInstance();
+    }
+    return result;
+  }
+
+  private static long getBlockCount(int length, int blockSize) {
+    // long, as length + blockSize - 1 overflows for lengths near Integer.MAX_VALUE
+    return Math.max(1, (length + (long) blockSize - 1) / blockSize);
+  }
+
+  private static void xor(byte[] source, byte[] destination) {
+    for (int i = 0; i < destination.length; i++) {
+      destination[i] ^= source[i];
+    }
+  }
+
+  private static int readInt(byte[] buffer, int offset) {
+    return ((buffer[offset] & 0xFF) << 24) | ((buffer[offset + 1] & 0xFF) << 16) | ((buffer[offset + 2] & 0xFF) << 8) | (buffer[offset + 3] & 0xFF);
+  }
+
+}
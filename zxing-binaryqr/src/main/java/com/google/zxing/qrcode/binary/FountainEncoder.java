@@ -0,0 +1,83 @@
+package com.google.zxing.qrcode.binary;
+
+import java.util.zip.CRC32;
+
+/**
+ * Produces an endless sequence of fountain coded frames for content too large for a Structured
+ * Append sequence, to be shown one QR code at a time. See {@link FountainCode} for the frame format.
+ *
+ * @author Thomas Skjolberg
+ */
+public final class FountainEncoder {
+
+  private final byte[] content;
+  private final int blockSize;
+  private final int checksum;
+  private final FountainCode code;
+
+  public FountainEncoder(byte[] content, int blockSize) {
+    if (blockSize < 1 || blockSize > FountainCode.MAX_BLOCK_SIZE) {
+      throw new IllegalArgumentException("Block size must be 1 to " + FountainCode.MAX_BLOCK_SIZE + ", got " + blockSize);
+    }
+    int blockCount = Math.max(1, (content.length + blockSize - 1) / blockSize);
+    if (blockCount > FountainCode.MAX_BLOCK_COUNT) {
+      throw new IllegalArgumentException("Content of " + content.length + " bytes exceeds " + FountainCode.MAX_BLOCK_COUNT + " blocks of " + blockSize + " bytes");
+    }
+    this.content = content;
+    this.blockSize = blockSize;
+
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    this.checksum = (int) crc.getValue();
+
+    this.code = new FountainCode(blockCount);
+  }
+
+  /**
+   * @return the number of source blocks, i.e. the least number of frames needed to decode
+   */
+  public int getBlockCount() {
+    return code.getBlockCount();
+  }
+
+  /**
+   * @return the size of each frame in bytes
+   */
+  public int getFrameSize() {
+    return FountainCode.HEADER_SIZE + blockSize;
+  }
+
+  /**
+   * @param seed frame number, from 0
+   * @return the frame
+   */
+  public synchronized byte[] getFrame(int seed) {
+    if (seed < 0) {
+      throw new IllegalArgumentException("Negative seed " + seed);
+    }
+    byte[] frame = new byte[getFrameSize()];
+
+    writeInt(frame, 0, content.length);
+    writeInt(frame, 4, checksum);
+    frame[8] = (byte) (blockSize >> 8);
+    frame[9] = (byte) blockSize;
+    writeInt(frame, 10, seed);
+
+    for (int block : code.getBlocks(seed)) {
+      int offset = block * blockSize;
+      int length = Math.min(blockSize, content.length - offset);
+      for (int i = 0; i < length; i++) {
+        frame[FountainCode.HEADER_SIZE + i] ^= content[offset + i];
+      }
+    }
+    return frame;
+  }
+
+  private static void writeInt(byte[] buffer, int offset, int value) {
+    buffer[offset] = (byte) (value >> 24);
+    buffer[offset + 1] = (byte) (value >> 16);
+    buffer[offset + 2] = (byte) (value >> 8);
+    buffer[offset + 3] = (byte) value;
+  }
+
+}
@@ -0,0 +1,102 @@
+package com.google.zxing.qrcode.binary;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.QRCode;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least-recently-used cache of encoded {@link QRCode}s, keyed by content bytes and
+ * error correction level. Lets a writer skip the expensive encoding step when only the requested
+ * dimensions change, or when previously seen content (i.e. after undo / redo) is encoded again.
+ *
+ * @author Thomas Skjolberg
+ */
+public final class QRCodeCache {
+
+  private static final class Key {
+
+    private final byte[] contents;
+    private final ErrorCorrectionLevel ecLevel;
+    private final int hashCode;
+
+    Key(byte[] contents, ErrorCorrectionLevel ecLevel) {
+      this.contents = contents;
+      this.ecLevel = ecLevel;
+      this.hashCode = 31 * Arrays.hashCode(contents) + ecLevel.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return hashCode == other.hashCode && ecLevel == other.ecLevel && Arrays.equals(contents, other.contents);
+    }
+  }
+
+  private final Map<Key,QRCode> codes;
+
+  private long hits;
+  private long misses;
+
+  public QRCodeCache(final int maxEntries) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Cache must hold at least one entry, got " + maxEntries);
+    }
+    this.codes = new LinkedHashMap<Key,QRCode>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key,QRCode> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * @return the cached code, or null if not present
+   */
+  public synchronized QRCode get(byte[] contents, ErrorCorrectionLevel ecLevel) {
+    QRCode code = codes.get(new Key(contents, ecLevel));
+    if (code != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return code;
+  }
+
+  public synchronized void put(byte[] contents, ErrorCorrectionLevel ecLevel, QRCode code) {
+    // copy the key bytes, the caller might reuse its array
+    codes.put(new Key(contents.clone(), ecLevel), code);
+  }
+
+  public synchronized int size() {
+    return codes.size();
+  }
+
+  public synchronized void clear() {
+    codes.clear();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "QRCodeCache[size=" + codes.size() + ", hits=" + hits + ", misses=" + misses + ']';
+  }
+
+}
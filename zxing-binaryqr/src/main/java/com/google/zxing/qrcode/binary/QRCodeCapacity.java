@@ -0,0 +1,118 @@
+package com.google.zxing.qrcode.binary;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.decoder.Mode;
+import com.google.zxing.qrcode.decoder.Version;
+
+/**
+ * Byte mode capacity of QR codes, computed from the version and error correction block tables
+ * so that the size of a code can be known without encoding it.
+ *
+ * @author Thomas Skjolberg
+ */
+public final class QRCodeCapacity {
+
+  private static final int MAX_VERSION = 40;
+
+  /** mode, symbol position, total symbols and parity */
+  private static final int STRUCTURED_APPEND_HEADER_BITS = 4 + 4 + 4 + 8;
+
+  public static final int MAX_STRUCTURED_APPEND_SYMBOLS = 16;
+
+  /** max payload in bytes, indexed by error correction level ordinal and version number */
+  private static final int[][] MAX_PAYLOADS = new int[ErrorCorrectionLevel.values().length][MAX_VERSION + 1];
+
+  /** max payload in bytes per Structured Append symbol, indexed by error correction level ordinal */
+  private static final int[] MAX_STRUCTURED_APPEND_PAYLOADS = new int[ErrorCorrectionLevel.values().length];
+
+  static {
+    for (ErrorCorrectionLevel ecLevel : ErrorCorrectionLevel.values()) {
+      for (int versionNum = 1; versionNum <= MAX_VERSION; versionNum++) {
+        Version version = Version.getVersionForNumber(versionNum);
+
+        int numDataBytes = version.getTotalCodewords() - version.getECBlocksForLevel(ecLevel).getTotalECCodewords();
+        // mode and character count, rounded up to whole bytes like the encoder does
+        int headerBits = 4 + Mode.BYTE.getCharacterCountBits(version);
+
+        MAX_PAYLOADS[ecLevel.ordinal()][versionNum] = numDataBytes - (headerBits + 7) / 8;
+
+        if (versionNum == MAX_VERSION) {
+          MAX_STRUCTURED_APPEND_PAYLOADS[ecLevel.ordinal()] = numDataBytes - (STRUCTURED_APPEND_HEADER_BITS + headerBits + 7) / 8;
+        }
+      }
+    }
+  }
+
+  private QRCodeCapacity() {
+  }
+
+  /**
+   * @return the max number of bytes in a code of the given version
+   */
+  public static int getMaxPayload(Version version, ErrorCorrectionLevel ecLevel) {
+    return MAX_PAYLOADS[ecLevel.ordinal()][version.getVersionNumber()];
+  }
+
+  /**
+   * @return the max number of bytes in a code of any version
+   */
+  public static int getMaxPayload(ErrorCorrectionLevel ecLevel) {
+    return MAX_PAYLOADS[ecLevel.ordinal()][MAX_VERSION];
+  }
+
+  /**
+   * @param length payload length in bytes
+   * @return the smallest version which holds the payload, or null if the payload is too large
+   */
+  public static Version getVersion(int length, ErrorCorrectionLevel ecLevel) {
+    int[] maxPayloads = MAX_PAYLOADS[ecLevel.ordinal()];
+    for (int versionNum = 1; versionNum <= MAX_VERSION; versionNum++) {
+      if (length <= maxPayloads[versionNum]) {
+        return Version.getVersionForNumber(versionNum);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param length payload length in bytes
+   * @return bytes left in the smallest version which holds the payload, or the (negative) excess
+   *   over the largest version if the payload is too large
+   */
+  public static int getHeadroom(int length, ErrorCorrectionLevel ecLevel) {
+    Version version = getVersion(length, ecLevel);
+    if (version == null) {
+      return getBytesLeft(length, ecLevel);
+    }
+    return getMaxPayload(version, ecLevel) - length;
+  }
+
+  /**
+   * @param length payload length in bytes
+   * @return bytes left before the payload no longer fits in any version, negative if too large
+   */
+  public static int getBytesLeft(int length, ErrorCorrectionLevel ecLevel) {
+    return getMaxPayload(ecLevel) - length;
+  }
+
+  /**
+   * @return the max number of bytes in a Structured Append sequence of the largest symbols
+   */
+  public static int getMaxStructuredAppendPayload(ErrorCorrectionLevel ecLevel) {
+    return MAX_STRUCTURED_APPEND_SYMBOLS * MAX_STRUCTURED_APPEND_PAYLOADS[ecLevel.ordinal()];
+  }
+
+  /**
+   * @param length payload length in bytes
+   * @return the number of Structured Append symbols needed for the payload, or -1 if the payload is too large
+   */
+  public static int getStructuredAppendSymbols(int length, ErrorCorrectionLevel ecLevel) {
+    int maxPayload = MAX_STRUCTURED_APPEND_PAYLOADS[ecLevel.ordinal()];
+    int symbols = Math.max(1, (length + maxPayload - 1) / maxPayload);
+    if (symbols > MAX_STRUCTURED_APPEND_SYMBOLS) {
+      return -1;
+    }
+    return symbols;
+  }
+
+}
@@ -49,6 +49,8 @@ public final class DecodedBitStreamParser {
 		BitSource bits = new BitSource(bytes);
 		
 		List<byte[]> byteSegments = new ArrayList<byte[]>(1);
+		int symbolSequence = -1;
+		int parityData = -1;
 		Mode mode;
 		do {
 			// While still another segment to read...
@@ -62,7 +64,14 @@ public final class DecodedBitStreamParser {
 					throw FormatException.getFormatInstance();
 				}
 			}
-			if (mode != Mode.TERMINATOR) {
+			if (mode == Mode.STRUCTURED_APPEND) {
+				if (bits.available() < 16) {
+					throw FormatException.getFormatInstance();
+				}
+				// Read next 8 bits (symbol sequence #) and 8 bits (parity data), then continue
+				symbolSequence = bits.readBits(8);
+				parityData = bits.readBits(8);
+			} else if (mode != Mode.TERMINATOR) {
 				// "Normal" QR code modes:
 				// How many characters will follow, encoded in this mode?
 				int count = bits.readBits(mode.getCharacterCountBits(version));
@@ -83,7 +92,7 @@ public final class DecodedBitStreamParser {
 			}
 		}
 
-		DecoderResult result = new DecoderResult(bout.toByteArray(), "", null, null);
+		DecoderResult result = new DecoderResult(bout.toByteArray(), "", null, null, symbolSequence, parityData);
 		
 		return result;
 	}
@@ -30,6 +30,8 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * @author satorux@google.com (Satoru Takabayashi) - creator
@@ -49,6 +51,11 @@ public final class Encoder {
 
   static final String DEFAULT_BYTE_MODE_ENCODING = "ISO-8859-1";
 
+  /** Pass as mask pattern to search for the mask pattern with the lowest penalty. */
+  public static final int MASK_PATTERN_SEARCH = -1;
+
+  private static ForkJoinPool maskSearchPool;
+
   private Encoder() {
   }
 
@@ -75,6 +82,75 @@ public final class Encoder {
   public static QRCode encode(byte[] content,
                               ErrorCorrectionLevel ecLevel,
                               Map<EncodeHintType,?> hints) throws WriterException {
+    return encode(content, ecLevel, hints, MASK_PATTERN_SEARCH, false);
+  }
+
+  /**
+   * @param content text to encode
+   * @param ecLevel error correction level to use
+   * @param hints encoding hints, or null
+   * @param maskPattern mask pattern to use without penalty search, or {@link #MASK_PATTERN_SEARCH}
+   * @param parallel score the mask patterns concurrently, each in its own matrix. The result is
+   *   identical to the sequential search.
+   * @return {@link QRCode} representing the encoded QR code
+   * @throws WriterException if encoding can't succeed, because of for example invalid content
+   *   or configuration
+   */
+  public static QRCode encode(byte[] content,
+                              ErrorCorrectionLevel ecLevel,
+                              Map<EncodeHintType,?> hints,
+                              int maskPattern,
+                              boolean parallel) throws WriterException {
+    return encode(content, 0, content.length, null, ecLevel, hints, maskPattern, parallel);
+  }
+
+  /**
+   * Encode one symbol of a Structured Append sequence, see 9.2 of ISO/IEC 18004:2006.
+   *
+   * @param content all content of the sequence
+   * @param offset offset of this symbol's content
+   * @param length length of this symbol's content
+   * @param index position of this symbol in the sequence, from 0
+   * @param total number of symbols in the sequence, 1 to 16
+   * @param parity parity of all content of the sequence, i.e. all bytes XORed together
+   * @return {@link QRCode} representing the encoded QR code
+   * @throws WriterException if encoding can't succeed, because of for example invalid content
+   *   or configuration
+   */
+  public static QRCode encodeStructuredAppend(byte[] content,
+                                              int offset,
+                                              int length,
+                                              int index,
+                                              int total,
+                                              int parity,
+                                              ErrorCorrectionLevel ecLevel,
+                                              Map<EncodeHintType,?> hints,
+                                              int maskPattern,
+                                              boolean parallel) throws WriterException {
+    if (total < 1 || total > 16 || index < 0 || index >= total) {
+      throw new WriterException("Invalid structured append position " + index + " of " + total);
+    }
+    BitArray structuredAppendBits = new BitArray();
+    appendModeInfo(Mode.STRUCTURED_APPEND, structuredAppendBits);
+    structuredAppendBits.appendBits(index, 4);
+    structuredAppendBits.appendBits(total - 1, 4);
+    structuredAppendBits.appendBits(parity & 0xFF, 8);
+
+    return encode(content, offset, length, structuredAppendBits, ecLevel, hints, maskPattern, parallel);
+  }
+
+  private static QRCode encode(byte[] content,
+                               int offset,
+                               int length,
+                               BitArray structuredAppendBits,
+                               ErrorCorrectionLevel ecLevel,
+                               Map<EncodeHintType,?> hints,
+                               int maskPattern,
+                               boolean parallel) throws WriterException {
+
+    if (maskPattern != MASK_PATTERN_SEARCH && !QRCode.isValidMaskPattern(maskPattern)) {
+      throw new WriterException("Invalid mask pattern " + maskPattern);
+    }
 
     // Determine what character encoding has been specified by the caller, if any
     String encoding = hints == null ? null : (String) hints.get(EncodeHintType.CHARACTER_SET);
@@ -90,6 +166,11 @@ public final class Encoder {
     // length, as well as "header" segments like an ECI segment.
     BitArray headerBits = new BitArray();
 
+    // Structured Append header goes first
+    if (structuredAppendBits != null) {
+      headerBits.appendBitArray(structuredAppendBits);
+    }
+
     // Append ECI segment if applicable
     if (mode == Mode.BYTE && !DEFAULT_BYTE_MODE_ENCODING.equals(encoding)) {
       CharacterSetECI eci = CharacterSetECI.getCharacterSetECIByName(encoding);
@@ -105,7 +186,7 @@ public final class Encoder {
     // main payload yet.
     BitArray dataBits = new BitArray();
     
-    append8BitBytes(content, dataBits, encoding);
+    append8BitBytes(content, offset, length, dataBits);
     
     // Hard part: need to know version to know how many bits length takes. But need to know how many
     // bits it takes to know version. First we take a guess at version by assuming version will be
@@ -152,12 +233,23 @@ public final class Encoder {
 
     //  Choose the mask pattern and set to "qrCode".
     int dimension = version.getDimensionForVersion();
-    ByteMatrix matrix = new ByteMatrix(dimension, dimension);
-    int maskPattern = chooseMaskPattern(finalBits, ecLevel, version, matrix);
-    qrCode.setMaskPattern(maskPattern);
+    ByteMatrix matrix;
+    if (maskPattern != MASK_PATTERN_SEARCH) {
+      matrix = new ByteMatrix(dimension, dimension);
+      MatrixUtil.buildMatrix(finalBits, ecLevel, version, maskPattern, matrix);
+    } else if (parallel) {
+      // the winning matrix is already built with its mask
+      MaskPenaltyTask best = chooseMaskPatternParallel(finalBits, ecLevel, version, dimension);
+      maskPattern = best.maskPattern;
+      matrix = best.matrix;
+    } else {
+      matrix = new ByteMatrix(dimension, dimension);
+      maskPattern = chooseMaskPattern(finalBits, ecLevel, version, matrix);
 
-    // Build the matrix and set it to "qrCode".
-    MatrixUtil.buildMatrix(finalBits, ecLevel, version, maskPattern, matrix);
+      // Build the matrix and set it to "qrCode".
+      MatrixUtil.buildMatrix(finalBits, ecLevel, version, maskPattern, matrix);
+    }
+    qrCode.setMaskPattern(maskPattern);
     qrCode.setMatrix(matrix);
 
     return qrCode;
@@ -193,6 +285,91 @@ public final class Encoder {
     return bestMaskPattern;
   }
 
+  /**
+   * Scores all mask patterns concurrently.
+   *
+   * @return the task of the best (first lowest penalty) mask pattern, holding its matrix
+   */
+  private static MaskPenaltyTask chooseMaskPatternParallel(BitArray bits,
+                                                        ErrorCorrectionLevel ecLevel,
+                                                        Version version,
+                                                        int dimension) throws WriterException {
+    MaskPenaltyTask[] tasks = new MaskPenaltyTask[QRCode.NUM_MASK_PATTERNS];
+    for (int maskPattern = 0; maskPattern < tasks.length; maskPattern++) {
+      tasks[maskPattern] = new MaskPenaltyTask(bits, ecLevel, version, maskPattern, dimension);
+    }
+    getMaskSearchPool().invoke(new MaskPenaltyTasks(tasks));
+
+    // same selection as the sequential search, so ties go to the lowest mask pattern
+    int minPenalty = Integer.MAX_VALUE;
+    MaskPenaltyTask best = null;
+    for (MaskPenaltyTask task : tasks) {
+      if (task.exception != null) {
+        throw task.exception;
+      }
+      if (task.penalty < minPenalty) {
+        minPenalty = task.penalty;
+        best = task;
+      }
+    }
+    return best;
+  }
+
+  private static synchronized ForkJoinPool getMaskSearchPool() {
+    if (maskSearchPool == null) {
+      maskSearchPool = new ForkJoinPool(Math.min(QRCode.NUM_MASK_PATTERNS, Runtime.getRuntime().availableProcessors()));
+    }
+    return maskSearchPool;
+  }
+
+  private static final class MaskPenaltyTasks extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final MaskPenaltyTask[] tasks;
+
+    MaskPenaltyTasks(MaskPenaltyTask[] tasks) {
+      this.tasks = tasks;
+    }
+
+    @Override
+    protected void compute() {
+      invokeAll(tasks);
+    }
+  }
+
+  private static final class MaskPenaltyTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final BitArray bits;
+    private final ErrorCorrectionLevel ecLevel;
+    private final Version version;
+    private final int maskPattern;
+    private final ByteMatrix matrix;
+
+    private int penalty;
+    private WriterException exception;
+
+    MaskPenaltyTask(BitArray bits, ErrorCorrectionLevel ecLevel, Version version, int maskPattern, int dimension) {
+      this.bits = bits;
+      this.ecLevel = ecLevel;
+      this.version = version;
+      this.maskPattern = maskPattern;
+      this.matrix = new ByteMatrix(dimension, dimension);
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        MatrixUtil.buildMatrix(bits, ecLevel, version, maskPattern, matrix);
+        penalty = calculateMaskPenalty(matrix);
+      } catch (WriterException e) {
+        exception = e;
+      }
+    }
+  }
+
   private static Version chooseVersion(int numInputBits, ErrorCorrectionLevel ecLevel) throws WriterException {
     // In the following comments, we use numbers of Version 7-H.
     for (int versionNum = 1; versionNum <= 40; versionNum++) {
@@ -453,9 +630,9 @@ public final class Encoder {
     }
   }
 
-  static void append8BitBytes(byte[] bytes, BitArray bits, String encoding) throws WriterException {
-    for (byte b : bytes) {
-      bits.appendBits(b, 8);
+  static void append8BitBytes(byte[] bytes, int offset, int length, BitArray bits) {
+    for (int i = offset; i < offset + length; i++) {
+      bits.appendBits(bytes[i], 8);
     }
   }
 
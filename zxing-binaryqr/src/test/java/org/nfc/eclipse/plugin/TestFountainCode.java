@@ -0,0 +1,187 @@
+package org.nfc.eclipse.plugin;
+
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg / Antares Gruppen AS.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.FormatException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.binary.BinaryQRCodeWriter;
+import com.google.zxing.qrcode.binary.FountainDecoder;
+import com.google.zxing.qrcode.binary.FountainEncoder;
+
+public class TestFountainCode {
+
+	@Test
+	public void testAllSystematicFrames() throws Exception {
+		byte[] content = new byte[10001];
+		new Random(1).nextBytes(content);
+		
+		FountainEncoder encoder = new FountainEncoder(content, 500);
+		FountainDecoder decoder = new FountainDecoder();
+		
+		for(int seed = 0; seed < encoder.getBlockCount() - 1; seed++) {
+			assertFalse(decoder.add(encoder.getFrame(seed)));
+		}
+		assertTrue(decoder.add(encoder.getFrame(encoder.getBlockCount() - 1)));
+		
+		assertArrayEquals(content, decoder.getContent());
+	}
+
+	/**
+	 * Any large enough subset of frames should do, with frames lost and out of order.
+	 */
+
+	@Test
+	public void testRandomSubsets() throws Exception {
+		Random random = new Random(2);
+		
+		for(int length : new int[]{0, 1, 499, 500, 501, 20000, 100000}) {
+			byte[] content = new byte[length];
+			random.nextBytes(content);
+			
+			FountainEncoder encoder = new FountainEncoder(content, 500);
+			
+			for(int run = 0; run < 5; run++) {
+				FountainDecoder decoder = new FountainDecoder();
+				
+				// lose half the frames
+				int seed = random.nextInt(1000);
+				while(!decoder.add(encoder.getFrame(seed))) {
+					seed += 1 + random.nextInt(2);
+					
+					if(decoder.getFrames() > encoder.getBlockCount() * 3 + 20) {
+						throw new AssertionError("Too many frames for " + length + " bytes, " + decoder.getRecoveredBlockCount() + " of " + decoder.getBlockCount() + " blocks");
+					}
+				}
+				assertArrayEquals(content, decoder.getContent());
+			}
+		}
+	}
+
+	@Test
+	public void testNewContentRestarts() throws Exception {
+		FountainDecoder decoder = new FountainDecoder();
+		
+		byte[] first = new byte[2000];
+		byte[] second = new byte[2000];
+		second[0] = 1;
+		
+		assertFalse(decoder.add(new FountainEncoder(first, 500).getFrame(0)));
+		
+		FountainEncoder encoder = new FountainEncoder(second, 500);
+		int seed = 10;
+		while(!decoder.add(encoder.getFrame(seed))) {
+			seed++;
+		}
+		assertArrayEquals(second, decoder.getContent());
+	}
+
+	@Test
+	public void testOversizedHeaderRejected() throws Exception {
+		byte[] content = new byte[2000];
+		new Random(4).nextBytes(content);
+		
+		FountainEncoder encoder = new FountainEncoder(content, 500);
+		FountainDecoder decoder = new FountainDecoder();
+		assertFalse(decoder.add(encoder.getFrame(0)));
+		
+		// claim the maximum length in blocks of one byte
+		byte[] frame = encoder.getFrame(1);
+		frame[0] = 0x7F;
+		frame[1] = frame[2] = frame[3] = (byte)0xFF;
+		frame[8] = 0;
+		frame[9] = 1;
+		try {
+			decoder.add(frame);
+			fail();
+		} catch(FormatException e) {
+			// expected
+		}
+		
+		// the rejected frame does not restart decoding
+		assertEquals(4, decoder.getBlockCount());
+		assertEquals(1, decoder.getRecoveredBlockCount());
+		
+		for(int seed = 1; seed < encoder.getBlockCount(); seed++) {
+			decoder.add(encoder.getFrame(seed));
+		}
+		assertArrayEquals(content, decoder.getContent());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOversizedContentRejected() {
+		new FountainEncoder(new byte[0x10000 + 1], 1);
+	}
+
+	@Test
+	public void testQRFrames() throws Exception {
+		byte[] content = new byte[4000];
+		new Random(3).nextBytes(content);
+		
+		FountainEncoder encoder = new FountainEncoder(content, 400);
+		FountainDecoder decoder = new FountainDecoder();
+		BinaryQRCodeWriter writer = new BinaryQRCodeWriter();
+		
+		// skip every third frame
+		int seed = 0;
+		boolean complete = false;
+		while(!complete) {
+			if(seed % 3 != 2) {
+				BitMatrix matrix = writer.encode(encoder.getFrame(seed), com.google.zxing.BarcodeFormat.QR_CODE, 0, 0);
+				
+				complete = decoder.add(toBitmap(matrix));
+			}
+			seed++;
+		}
+		assertArrayEquals(content, decoder.getContent());
+	}
+
+	private static BinaryBitmap toBitmap(BitMatrix matrix) {
+		BufferedImage image = new BufferedImage(matrix.getWidth(), matrix.getHeight(), BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < matrix.getHeight(); y++) { 
+			for (int x = 0; x < matrix.getWidth(); x++) { 
+				image.setRGB(x, y, matrix.get(x, y) ? 0 : 0xFFFFFF);
+			}
+		}
+		return new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+	}
+}
@@ -0,0 +1,121 @@
+package org.nfc.eclipse.plugin;
+
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg / Antares Gruppen AS.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.binary.BinaryQRCodeReader;
+import com.google.zxing.qrcode.binary.BinaryQRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.Encoder;
+import com.google.zxing.qrcode.encoder.QRCode;
+
+public class TestMaskPattern {
+
+	@Test
+	public void testParallelSearchIsIdentical() throws Exception {
+		Random random = new Random(42);
+		
+		// up to the largest version 40 code at level L
+		for(int length : new int[]{0, 1, 17, 100, 500, 1200, 2900}) {
+			byte[] content = new byte[length];
+			random.nextBytes(content);
+			
+			for(ErrorCorrectionLevel ecLevel : ErrorCorrectionLevel.values()) {
+				QRCode sequential;
+				try {
+					sequential = Encoder.encode(content, ecLevel, null, Encoder.MASK_PATTERN_SEARCH, false);
+				} catch(WriterException e) {
+					// too large for this level
+					continue;
+				}
+				QRCode parallel = Encoder.encode(content, ecLevel, null, Encoder.MASK_PATTERN_SEARCH, true);
+				
+				assertEquals(sequential.getVersion(), parallel.getVersion());
+				assertEquals(sequential.getMaskPattern(), parallel.getMaskPattern());
+				
+				byte[][] expected = sequential.getMatrix().getArray();
+				byte[][] actual = parallel.getMatrix().getArray();
+				assertEquals(expected.length, actual.length);
+				for(int y = 0; y < expected.length; y++) {
+					assertArrayEquals(expected[y], actual[y]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFixedMaskPattern() throws Exception {
+		byte[] content = new byte[]{0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07};
+		
+		for(int maskPattern = 0; maskPattern < QRCode.NUM_MASK_PATTERNS; maskPattern++) {
+			QRCode code = Encoder.encode(content, ErrorCorrectionLevel.L, null, maskPattern, false);
+			assertEquals(maskPattern, code.getMaskPattern());
+			
+			BinaryQRCodeWriter writer = new BinaryQRCodeWriter();
+			writer.setMaskPattern(maskPattern);
+			BitMatrix matrix = writer.encode(content, com.google.zxing.BarcodeFormat.QR_CODE, 200, 200);
+			
+			byte[] result = decode(matrix);
+			assertTrue(result.length >= content.length);
+			for(int i = 0; i < content.length; i++) {
+				assertEquals(content[i], result[i]);
+			}
+		}
+	}
+
+	@Test(expected = WriterException.class)
+	public void testInvalidMaskPattern() throws Exception {
+		Encoder.encode(new byte[]{0x01}, ErrorCorrectionLevel.L, null, QRCode.NUM_MASK_PATTERNS, false);
+	}
+
+	private static byte[] decode(BitMatrix matrix) throws Exception {
+		BufferedImage image = new BufferedImage(matrix.getWidth(), matrix.getHeight(), BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < matrix.getHeight(); y++) { 
+			for (int x = 0; x < matrix.getWidth(); x++) { 
+				image.setRGB(x, y, matrix.get(x, y) ? 0 : 0xFFFFFF);
+			}
+		}
+		BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+		
+		return new BinaryQRCodeReader().decode(bitmap);
+	}
+}
@@ -0,0 +1,96 @@
+package org.nfc.eclipse.plugin;
+
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg / Antares Gruppen AS.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.binary.BinaryQRCodeWriter;
+import com.google.zxing.qrcode.binary.QRCodeCache;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+public class TestQRCodeCache {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Test
+	public void testResizeHitsCache() throws Exception {
+		QRCodeCache cache = new QRCodeCache(4);
+
+		BinaryQRCodeWriter cached = new BinaryQRCodeWriter();
+		cached.setCache(cache);
+		BinaryQRCodeWriter uncached = new BinaryQRCodeWriter();
+
+		byte[] content = "Hello cached world".getBytes(UTF8);
+
+		for(int size : new int[]{100, 200, 100, 333}) {
+			BitMatrix expected = uncached.encode(content, BarcodeFormat.QR_CODE, size, size);
+			BitMatrix actual = cached.encode(content, BarcodeFormat.QR_CODE, size, size);
+
+			assertEquals(expected, actual);
+		}
+		assertEquals(1, cache.getMisses());
+		assertEquals(3, cache.getHits());
+
+		// equal content in another array is the same key
+		cached.encode(Arrays.copyOf(content, content.length), BarcodeFormat.QR_CODE, 100, 100);
+		assertEquals(4, cache.getHits());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() throws Exception {
+		QRCodeCache cache = new QRCodeCache(2);
+
+		BinaryQRCodeWriter writer = new BinaryQRCodeWriter();
+		writer.setCache(cache);
+
+		byte[] a = "a".getBytes(UTF8);
+		byte[] b = "b".getBytes(UTF8);
+		byte[] c = "c".getBytes(UTF8);
+
+		writer.encode(a, BarcodeFormat.QR_CODE, 50, 50);
+		writer.encode(b, BarcodeFormat.QR_CODE, 50, 50);
+		writer.encode(a, BarcodeFormat.QR_CODE, 50, 50); // a is now most recent
+		writer.encode(c, BarcodeFormat.QR_CODE, 50, 50); // evicts b
+
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get(a, ErrorCorrectionLevel.L));
+		assertNotNull(cache.get(c, ErrorCorrectionLevel.L));
+		assertNull(cache.get(b, ErrorCorrectionLevel.L));
+		assertNull(cache.get(a, ErrorCorrectionLevel.H));
+	}
+}
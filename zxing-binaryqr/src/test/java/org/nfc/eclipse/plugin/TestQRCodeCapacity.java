@@ -0,0 +1,91 @@
+package org.nfc.eclipse.plugin;
+
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg / Antares Gruppen AS.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.binary.QRCodeCapacity;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.decoder.Version;
+import com.google.zxing.qrcode.encoder.Encoder;
+
+public class TestQRCodeCapacity {
+
+	@Test
+	public void testMaxPayload() {
+		assertEquals(2953, QRCodeCapacity.getMaxPayload(ErrorCorrectionLevel.L));
+		assertEquals(2331, QRCodeCapacity.getMaxPayload(ErrorCorrectionLevel.M));
+		assertEquals(1663, QRCodeCapacity.getMaxPayload(ErrorCorrectionLevel.Q));
+		assertEquals(1273, QRCodeCapacity.getMaxPayload(ErrorCorrectionLevel.H));
+		
+		assertEquals(17, QRCodeCapacity.getMaxPayload(Version.getVersionForNumber(1), ErrorCorrectionLevel.L));
+		assertEquals(7, QRCodeCapacity.getMaxPayload(Version.getVersionForNumber(1), ErrorCorrectionLevel.H));
+	}
+
+	@Test
+	public void testHeadroom() {
+		assertEquals(0, QRCodeCapacity.getHeadroom(17, ErrorCorrectionLevel.L));
+		assertEquals(32 - 18, QRCodeCapacity.getHeadroom(18, ErrorCorrectionLevel.L));
+		assertEquals(-1, QRCodeCapacity.getHeadroom(2954, ErrorCorrectionLevel.L));
+		
+		assertEquals(2953 - 18, QRCodeCapacity.getBytesLeft(18, ErrorCorrectionLevel.L));
+		assertNull(QRCodeCapacity.getVersion(2954, ErrorCorrectionLevel.L));
+	}
+
+	/**
+	 * Check the version boundaries against the encoder.
+	 */
+
+	@Test
+	public void testSameAsEncoder() throws Exception {
+		for(ErrorCorrectionLevel ecLevel : ErrorCorrectionLevel.values()) {
+			for(int versionNum = 1; versionNum <= 40; versionNum++) {
+				int maxPayload = QRCodeCapacity.getMaxPayload(Version.getVersionForNumber(versionNum), ecLevel);
+				
+				for(int length : new int[]{maxPayload, maxPayload + 1}) {
+					Version version = QRCodeCapacity.getVersion(length, ecLevel);
+					try {
+						Version encoded = Encoder.encode(new byte[length], ecLevel, null, 0, false).getVersion();
+						
+						assertEquals(encoded, version);
+					} catch(WriterException e) {
+						if(version != null) {
+							fail("Encoder failed for " + length + " bytes at " + ecLevel);
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package org.nfc.eclipse.plugin;
+
+/***************************************************************************
+ *
+ * This file is part of the NFC Eclipse Plugin project at
+ * http://code.google.com/p/nfc-eclipse-plugin/
+ *
+ * Copyright (C) 2012 by Thomas Rorvik Skjolberg / Antares Gruppen AS.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.  IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ ****************************************************************************/
+
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.FormatException;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DecoderResult;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.binary.BinaryQRCodeReader;
+import com.google.zxing.qrcode.binary.BinaryQRCodeWriter;
+import com.google.zxing.qrcode.binary.QRCodeCapacity;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+public class TestStructuredAppend {
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Random random = new Random(1);
+		
+		for(int length : new int[]{10, 4000, 7000}) {
+			byte[] content = new byte[length];
+			random.nextBytes(content);
+			
+			BinaryQRCodeWriter writer = new BinaryQRCodeWriter();
+			BitMatrix[] matrices = writer.encodeStructuredAppend(content, 0, 0, null);
+			
+			assertEquals(QRCodeCapacity.getStructuredAppendSymbols(length, ErrorCorrectionLevel.L), matrices.length);
+			
+			BinaryQRCodeReader reader = new BinaryQRCodeReader();
+			List<DecoderResult> results = new ArrayList<DecoderResult>();
+			for(BitMatrix matrix : matrices) {
+				DecoderResult result = reader.decodeResult(toBitmap(matrix));
+				assertTrue(result.hasStructuredAppend());
+				
+				results.add(result);
+			}
+			Collections.shuffle(results, random);
+			
+			assertArrayEquals(content, BinaryQRCodeReader.merge(results));
+		}
+	}
+
+	@Test
+	public void testIncompleteSequence() throws Exception {
+		byte[] content = new byte[5000];
+		new Random(2).nextBytes(content);
+		
+		BinaryQRCodeWriter writer = new BinaryQRCodeWriter();
+		BitMatrix[] matrices = writer.encodeStructuredAppend(content, 0, 0, null);
+		assertEquals(2, matrices.length);
+		
+		List<DecoderResult> results = new ArrayList<DecoderResult>();
+		results.add(new BinaryQRCodeReader().decodeResult(toBitmap(matrices[1])));
+		try {
+			BinaryQRCodeReader.merge(results);
+			
+			fail();
+		} catch(FormatException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = WriterException.class)
+	public void testTooLarge() throws Exception {
+		int length = QRCodeCapacity.getMaxStructuredAppendPayload(ErrorCorrectionLevel.L) + 1;
+		
+		new BinaryQRCodeWriter().encodeStructuredAppend(new byte[length], 0, 0, null);
+	}
+
+	@Test
+	public void testSingleSymbolHasNoStructuredAppend() throws Exception {
+		BitMatrix matrix = new BinaryQRCodeWriter().encode(new byte[]{0x01, 0x02}, com.google.zxing.BarcodeFormat.QR_CODE, 0, 0);
+		
+		assertTrue(!new BinaryQRCodeReader().decodeResult(toBitmap(matrix)).hasStructuredAppend());
+	}
+
+	private static BinaryBitmap toBitmap(BitMatrix matrix) {
+		BufferedImage image = new BufferedImage(matrix.getWidth(), matrix.getHeight(), BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < matrix.getHeight(); y++) { 
+			for (int x = 0; x < matrix.getWidth(); x++) { 
+				image.setRGB(x, y, matrix.get(x, y) ? 0 : 0xFFFFFF);
+			}
+		}
+		return new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+	}
+}